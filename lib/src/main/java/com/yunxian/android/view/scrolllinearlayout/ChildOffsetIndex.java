@@ -0,0 +1,146 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 子视图在滚动方向上的位置索引，记录每个子视图（含外边距）的起止位置。
+ * 在布局完成后整体重建，单个子视图尺寸变化时可以 O(log n) 修正其后所有子视图的位置，
+ * 并支持 O(log n) 按位置查找子视图。要求子视图沿滚动方向依次排列且互不重叠
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 14:05
+ */
+final class ChildOffsetIndex {
+
+    /**
+     * 相邻子视图起始位置的间距，最后一个子视图为其自身长度
+     */
+    private final ItemExtentTable mAdvances = new ItemExtentTable();
+    private int[] mStarts = new int[0];
+    private int[] mExtents = new int[0];
+    private int mCount;
+    /**
+     * 首个子视图的起始位置
+     */
+    private int mBase;
+
+    /**
+     * 根据子视图当前的布局位置重建索引，O(n)
+     *
+     * @param parent     容器
+     * @param horizontal 是否水平方向
+     */
+    void rebuild(ViewGroup parent, boolean horizontal) {
+        final int count = parent.getChildCount();
+        begin(count);
+        int cursor = horizontal ? parent.getPaddingLeft() : parent.getPaddingTop();
+        for (int i = 0; i < count; i++) {
+            final View child = parent.getChildAt(i);
+            if (child.getVisibility() == View.GONE) {
+                // 不参与布局的子视图位置无效，视为当前位置上长度为0的子视图
+                set(i, cursor, 0);
+                continue;
+            }
+            final ViewGroup.MarginLayoutParams lp = (ViewGroup.MarginLayoutParams) child.getLayoutParams();
+            // 尚未布局的子视图位于0处，不早于前一个子视图的结束位置，保证间距不为负
+            if (horizontal) {
+                set(i, Math.max(cursor, child.getLeft() - lp.leftMargin), child.getWidth() + lp.leftMargin + lp.rightMargin);
+            } else {
+                set(i, Math.max(cursor, child.getTop() - lp.topMargin), child.getHeight() + lp.topMargin + lp.bottomMargin);
+            }
+            cursor = mStarts[i] + mExtents[i];
+        }
+        finish();
+    }
+
+    /**
+     * 开始逐个记录子视图位置，之后依次调用{@link #set(int, int, int)}，最后调用{@link #finish()}
+     *
+     * @param count 子视图数量
+     */
+    void begin(int count) {
+        if (mStarts.length < count) {
+            mStarts = new int[count];
+            mExtents = new int[count];
+        }
+        mCount = count;
+    }
+
+    /**
+     * @param index  子视图下标
+     * @param start  起始位置（含外边距）
+     * @param extent 长度（含外边距）
+     */
+    void set(int index, int start, int extent) {
+        mStarts[index] = start;
+        mExtents[index] = extent;
+    }
+
+    void finish() {
+        final int count = mCount;
+        final int[] starts = mStarts;
+        mBase = count > 0 ? starts[0] : 0;
+        // 复用起始位置数组存放间距
+        // 树状数组按偏移查找要求间距非负
+        for (int i = 0; i < count - 1; i++) {
+            starts[i] = Math.max(0, starts[i + 1] - starts[i]);
+        }
+        if (count > 0) {
+            starts[count - 1] = mExtents[count - 1];
+        }
+        mAdvances.load(starts, count);
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getStart(int index) {
+        return mBase + mAdvances.getOffset(index);
+    }
+
+    int getEnd(int index) {
+        return getStart(index) + mExtents[index];
+    }
+
+    int getExtent(int index) {
+        return mExtents[index];
+    }
+
+    int getContentStart() {
+        return mBase;
+    }
+
+    int getContentEnd() {
+        return mBase + mAdvances.getTotal();
+    }
+
+    /**
+     * 查找起始位置不大于指定位置的最后一个子视图，位置越界时返回首尾子视图
+     *
+     * @param offset 滚动方向上的位置
+     * @return 子视图下标，没有子视图时返回-1
+     */
+    int indexAtOffset(int offset) {
+        return mAdvances.indexAtOffset(offset - mBase);
+    }
+
+    /**
+     * 修正单个子视图的长度，其后所有子视图的位置随之平移，O(log n)
+     *
+     * @param index  子视图下标
+     * @param extent 新的长度（含外边距）
+     * @return 长度变化量
+     */
+    int resize(int index, int extent) {
+        final int delta = extent - mExtents[index];
+        if (delta != 0) {
+            mExtents[index] = extent;
+            mAdvances.setExtent(index, mAdvances.getExtent(index) + delta);
+        }
+        return delta;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import java.util.Arrays;
+
+/**
+ * 滚动方向上各个条目占用长度的索引表，基于树状数组实现，
+ * 单条目长度修改、条目起始偏移查询以及按偏移定位条目均为 O(log n)
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 10:12
+ */
+final class ItemExtentTable {
+
+    private int mCount;
+    /**
+     * 各条目的原始长度
+     */
+    private int[] mExtents = new int[0];
+    /**
+     * 条目是否已经经过实际测量，未测量的条目使用预估长度
+     */
+    private boolean[] mMeasured = new boolean[0];
+    /**
+     * 树状数组，下标从1开始
+     */
+    private int[] mTree = new int[1];
+    private int mTotal;
+
+    /**
+     * 重置索引表，所有条目均使用预估长度，O(n)
+     *
+     * @param count    条目数量
+     * @param estimate 预估长度
+     */
+    void reset(int count, int estimate) {
+        ensureCapacity(count);
+        Arrays.fill(mExtents, 0, mCount, estimate);
+        Arrays.fill(mMeasured, 0, mCount, false);
+        rebuild();
+    }
+
+    /**
+     * 使用给定的长度重置索引表，所有条目均视为已测量，O(n)
+     *
+     * @param extents 各条目长度
+     * @param count   条目数量
+     */
+    void load(int[] extents, int count) {
+        ensureCapacity(count);
+        System.arraycopy(extents, 0, mExtents, 0, mCount);
+        Arrays.fill(mMeasured, 0, mCount, true);
+        rebuild();
+    }
+
+    /**
+     * 使用新的预估长度替换所有未测量条目的长度，O(n)
+     *
+     * @param estimate 预估长度
+     */
+    void reestimate(int estimate) {
+        for (int i = 0; i < mCount; i++) {
+            if (!mMeasured[i]) {
+                mExtents[i] = estimate;
+            }
+        }
+        rebuild();
+    }
+
+    private void ensureCapacity(int count) {
+        mCount = Math.max(0, count);
+        if (mExtents.length < mCount) {
+            mExtents = new int[mCount];
+            mMeasured = new boolean[mCount];
+            mTree = new int[mCount + 1];
+        }
+    }
+
+    private void rebuild() {
+        final int[] tree = mTree;
+        final int count = mCount;
+        Arrays.fill(tree, 0, count + 1, 0);
+        int total = 0;
+        for (int i = 1; i <= count; i++) {
+            tree[i] += mExtents[i - 1];
+            total += mExtents[i - 1];
+            final int parent = i + (i & -i);
+            if (parent <= count) {
+                tree[parent] += tree[i];
+            }
+        }
+        mTotal = total;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getTotal() {
+        return mTotal;
+    }
+
+    int getExtent(int index) {
+        return mExtents[index];
+    }
+
+    boolean isMeasured(int index) {
+        return mMeasured[index];
+    }
+
+    /**
+     * 更新条目的实际长度
+     *
+     * @param index  条目下标
+     * @param extent 实际长度
+     * @return 与原长度的差值
+     */
+    int setExtent(int index, int extent) {
+        mMeasured[index] = true;
+        final int delta = extent - mExtents[index];
+        if (delta != 0) {
+            mExtents[index] = extent;
+            mTotal += delta;
+            for (int i = index + 1; i <= mCount; i += i & -i) {
+                mTree[i] += delta;
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * @param index 条目下标，允许等于条目数量，此时返回总长度
+     * @return 条目起始位置相对于首个条目起始位置的偏移，即之前所有条目长度之和
+     */
+    int getOffset(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 查找覆盖指定偏移的条目，偏移越界时返回首尾条目
+     *
+     * @param offset 相对于首个条目起始位置的偏移
+     * @return 条目下标，没有条目时返回-1
+     */
+    int indexAtOffset(int offset) {
+        if (mCount == 0) {
+            return -1;
+        }
+        if (offset < 0) {
+            return 0;
+        }
+        int pos = 0;
+        int remaining = offset;
+        for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+            final int next = pos + step;
+            if (next <= mCount && mTree[next] <= remaining) {
+                pos = next;
+                remaining -= mTree[next];
+            }
+        }
+        return Math.min(pos, mCount - 1);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * 按视图类型缓存已回收的条目视图，供适配器模式下复用
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 10:26
+ */
+final class ItemViewPool {
+
+    private static final int DEFAULT_MAX_SCRAP = 8;
+
+    private final SparseArray<ArrayList<View>> mScrap = new SparseArray<>();
+
+    @Nullable
+    View get(int viewType) {
+        final ArrayList<View> scrap = mScrap.get(viewType);
+        if (scrap == null || scrap.isEmpty()) {
+            return null;
+        }
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    void put(int viewType, @NonNull View view) {
+        ArrayList<View> scrap = mScrap.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayList<>(DEFAULT_MAX_SCRAP);
+            mScrap.put(viewType, scrap);
+        }
+        if (scrap.size() < DEFAULT_MAX_SCRAP) {
+            scrap.add(view);
+        }
+    }
+
+    void clear() {
+        mScrap.clear();
+    }
+
+}
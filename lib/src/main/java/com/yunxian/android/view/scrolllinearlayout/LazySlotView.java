@@ -0,0 +1,45 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 延迟创建的子视图占位，滚动方向上按预估长度占位，接近视口时由容器替换为工厂创建的实际子视图
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 16:40
+ */
+final class LazySlotView extends View {
+
+    private final int mEstimatedExtent;
+    private final ScrollLinearLayout.LazySlotFactory mFactory;
+
+    LazySlotView(Context context, int estimatedExtent, @NonNull ScrollLinearLayout.LazySlotFactory factory) {
+        super(context);
+        mEstimatedExtent = Math.max(0, estimatedExtent);
+        mFactory = factory;
+    }
+
+    @NonNull
+    ScrollLinearLayout.LazySlotFactory getFactory() {
+        return mFactory;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final ViewParent parent = getParent();
+        final boolean horizontal = parent instanceof LinearLayout
+                && ((LinearLayout) parent).getOrientation() == LinearLayout.HORIZONTAL;
+        if (horizontal) {
+            setMeasuredDimension(mEstimatedExtent, getDefaultSize(0, heightMeasureSpec));
+        } else {
+            setMeasuredDimension(getDefaultSize(0, widthMeasureSpec), mEstimatedExtent);
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import android.view.animation.Interpolator;
+
+/**
+ * 平滑滚动使用的插值器，默认与 {@link android.widget.OverScroller} 内置的 viscous fluid 曲线一致；
+ * 重新指定滚动目标时改用给定起始斜率的三次 Hermite 曲线，使新动画的起始速度与原动画的当前速度衔接
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 20:10
+ */
+final class ScrollInterpolator implements Interpolator {
+
+    private static final float VISCOUS_FLUID_SCALE = 8.0f;
+    private static final float VISCOUS_FLUID_NORMALIZE;
+    private static final float VISCOUS_FLUID_OFFSET;
+
+    static {
+        // must be set to 1.0 (used in viscousFluid())
+        VISCOUS_FLUID_NORMALIZE = 1.0f / viscousFluid(1.0f);
+        // account for very small floating-point error
+        VISCOUS_FLUID_OFFSET = 1.0f - VISCOUS_FLUID_NORMALIZE * viscousFluid(1.0f);
+    }
+
+    /**
+     * 起始斜率超过该值时 Hermite 曲线会越过终点，需限制在此范围内
+     */
+    static final float MAX_INITIAL_SLOPE = 3.0f;
+
+    private static final float DERIVATIVE_STEP = 0.01f;
+
+    /**
+     * 归一化的起始斜率，小于0时使用 viscous fluid 曲线
+     */
+    private float mInitialSlope = -1;
+
+    private static float viscousFluid(float x) {
+        x *= VISCOUS_FLUID_SCALE;
+        if (x < 1.0f) {
+            x -= (1.0f - (float) Math.exp(-x));
+        } else {
+            float start = 0.36787944117f;   // 1/e == exp(-1)
+            x = 1.0f - (float) Math.exp(1.0f - x);
+            x = start + x * (1.0f - start);
+        }
+        return x;
+    }
+
+    /**
+     * 恢复为默认的 viscous fluid 曲线
+     */
+    void reset() {
+        mInitialSlope = -1;
+    }
+
+    /**
+     * @param slope 归一化的起始斜率，即起始速度与平均速度之比，限制在 [0, {@link #MAX_INITIAL_SLOPE}]
+     */
+    void setInitialSlope(float slope) {
+        mInitialSlope = Math.max(0, Math.min(slope, MAX_INITIAL_SLOPE));
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (mInitialSlope < 0) {
+            final float interpolated = VISCOUS_FLUID_NORMALIZE * viscousFluid(input);
+            if (interpolated > 0) {
+                return interpolated + VISCOUS_FLUID_OFFSET;
+            }
+            return interpolated;
+        }
+        final float t2 = input * input;
+        final float t3 = t2 * input;
+        return mInitialSlope * (t3 - 2 * t2 + input) + (3 * t2 - 2 * t3);
+    }
+
+    /**
+     * @param input 归一化的时间
+     * @return 曲线在该时间点的斜率，即当前速度与平均速度之比
+     */
+    float getSlope(float input) {
+        if (mInitialSlope < 0) {
+            final float from = Math.max(0, input - DERIVATIVE_STEP);
+            final float to = Math.min(1, input + DERIVATIVE_STEP);
+            return to > from ? (getInterpolation(to) - getInterpolation(from)) / (to - from) : 0;
+        }
+        final float t2 = input * input;
+        return mInitialSlope * (3 * t2 - 4 * input + 1) + 6 * (input - t2);
+    }
+
+}
@@ -3,17 +3,22 @@ package com.yunxian.android.view.scrolllinearlayout;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.SparseIntArray;
 import android.util.TypedValue;
 import android.view.FocusFinder;
+import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
@@ -21,6 +26,7 @@ import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.WindowManager;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.animation.AnimationUtils;
 import android.widget.EdgeEffect;
@@ -43,7 +49,10 @@ import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import androidx.core.view.accessibility.AccessibilityRecordCompat;
 import androidx.core.widget.EdgeEffectCompat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 支持滚动的线性布局，根据布局方向分别支持对应方向的滚动
@@ -62,6 +71,56 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
     private static final String TAG = ScrollLinearLayout.class.getSimpleName();
     private static final int DEFAULT_SMOOTH_SCROLL_DURATION = 250;
 
+    /**
+     * 按住方向键时滚动位置领先焦点的子视图数量
+     */
+    private static final int KEY_REPEAT_LOOKAHEAD = 2;
+
+    /**
+     * 滚动状态：静止
+     */
+    public static final int SCROLL_STATE_IDLE = 0;
+    /**
+     * 滚动状态：手指拖动中
+     */
+    public static final int SCROLL_STATE_DRAGGING = 1;
+    /**
+     * 滚动状态：惯性滑动或平滑滚动中
+     */
+    public static final int SCROLL_STATE_SETTLING = 2;
+
+    /**
+     * 吸附对齐方式：不吸附
+     */
+    public static final int SNAP_NONE = 0;
+    /**
+     * 吸附对齐方式：子视图起始边缘与视口起始位置对齐
+     */
+    public static final int SNAP_START = 1;
+    /**
+     * 吸附对齐方式：子视图中心与视口中心对齐
+     */
+    public static final int SNAP_CENTER = 2;
+    /**
+     * 吸附对齐方式：子视图结束边缘与视口结束位置对齐
+     */
+    public static final int SNAP_END = 3;
+
+    /**
+     * 吸附动画时长的上下限，按抬手速度匀减速到达吸附位置所需的时长限制在此范围内
+     */
+    private static final int MIN_SNAP_DURATION = 100;
+    private static final int MAX_SNAP_DURATION = 800;
+    /**
+     * 适配器模式下按下标滚动后，按窗口内实际测量的长度重新定位的最多次数
+     */
+    private static final int MAX_CHILD_INDEX_SCROLL_PASSES = 3;
+    /**
+     * 与 {@link OverScroller} 惯性滑动的样条曲线参数一致，用于预测惯性滑动的距离
+     */
+    private static final float INFLEXION = 0.35f; // Tension lines cross at (INFLEXION, 1)
+    private static final float DECELERATION_RATE = (float) (Math.log(0.78) / Math.log(0.9));
+
     /**
      * Interface definition for a callback to be invoked when the scroll
      * X or Y positions of a view change.
@@ -84,10 +143,190 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
                             int oldScrollX, int oldScrollY);
     }
 
+    /**
+     * 惯性滑动的落点预测及滚动停止回调
+     *
+     * @see #setOnFlingListener(OnFlingListener)
+     */
+    public interface OnFlingListener {
+        /**
+         * 惯性滑动开始时回调，可见范围根据当前的位置索引预测，适配器模式下未测量的条目按预估长度计算
+         *
+         * @param v                 容器
+         * @param finalScroll       预计停止时滚动方向上的滚动位置
+         * @param firstVisibleIndex 预计停止时第一个可见的子视图下标，适配器模式下为条目位置，没有时为-1
+         * @param lastVisibleIndex  预计停止时最后一个可见的子视图下标，适配器模式下为条目位置，没有时为-1
+         */
+        void onFlingPredicted(ScrollLinearLayout v, int finalScroll, int firstVisibleIndex, int lastVisibleIndex);
+
+        /**
+         * 惯性滑动结束、滚动停止时回调
+         *
+         * @param v                 容器
+         * @param scroll            滚动方向上实际停止的滚动位置
+         * @param firstVisibleIndex 第一个可见的子视图下标，适配器模式下为条目位置，没有时为-1
+         * @param lastVisibleIndex  最后一个可见的子视图下标，适配器模式下为条目位置，没有时为-1
+         */
+        void onScrollSettled(ScrollLinearLayout v, int scroll, int firstVisibleIndex, int lastVisibleIndex);
+    }
+
+    /**
+     * 滚动状态变化回调
+     *
+     * @see #setOnScrollStateChangeListener(OnScrollStateChangeListener)
+     */
+    public interface OnScrollStateChangeListener {
+        /**
+         * @param v        容器
+         * @param newState 新的滚动状态，{@link #SCROLL_STATE_IDLE}、{@link #SCROLL_STATE_DRAGGING}
+         *                 或{@link #SCROLL_STATE_SETTLING}
+         */
+        void onScrollStateChanged(ScrollLinearLayout v, int newState);
+    }
+
+    /**
+     * 可见范围变化回调，只对进入或离开视口的子视图回调，GONE 的子视图不计入
+     *
+     * @see #setOnVisibleRangeChangeListener(OnVisibleRangeChangeListener)
+     */
+    public interface OnVisibleRangeChangeListener {
+        /**
+         * @param v     容器
+         * @param index 进入视口的子视图下标，适配器模式下为条目位置
+         */
+        void onChildEnterViewport(ScrollLinearLayout v, int index);
+
+        /**
+         * @param v     容器
+         * @param index 离开视口的子视图下标，适配器模式下为条目位置
+         */
+        void onChildExitViewport(ScrollLinearLayout v, int index);
+    }
+
+    /**
+     * 子视图曝光回调
+     *
+     * @see #addViewabilityRule(float, long, OnViewabilityListener)
+     */
+    public interface OnViewabilityListener {
+        /**
+         * 子视图的曝光比例持续达到阈值且满足驻留时长时回调，曝光比例低于阈值之前不会重复回调。
+         * 回调中不应增删曝光规则
+         *
+         * @param v               容器
+         * @param index           子视图下标，适配器模式下为条目位置
+         * @param exposedFraction 当前滚动方向上的曝光比例
+         */
+        void onChildViewable(ScrollLinearLayout v, int index, float exposedFraction);
+    }
+
+    /**
+     * 需要感知视口的子视图实现此接口，进入或离开视口及其前后扩展区域时由容器回调，
+     * 离开后可以暂停动画、释放解码后的图片或视频等资源
+     *
+     * @see #setViewportAwareMargin(int)
+     */
+    public interface ViewportAware {
+        void onEnterViewport();
+
+        void onLeaveViewport();
+    }
+
+    /**
+     * 延迟创建的子视图工厂
+     *
+     * @see #addLazySlot(int, int, LazySlotFactory)
+     */
+    public interface LazySlotFactory {
+        /**
+         * 占位接近视口时调用，创建实际的子视图
+         *
+         * @param parent 容器
+         * @return 子视图，未设置布局参数时沿用占位的布局参数
+         */
+        @NonNull
+        View onCreateView(@NonNull ScrollLinearLayout parent);
+    }
+
+    /**
+     * 条目适配器。设置后进入虚拟化模式，仅与视口及其前后扩展区域相交的条目会被创建并添加为子视图，
+     * 其余条目的视图按类型回收复用
+     *
+     * @see #setAdapter(Adapter)
+     */
+    public abstract static class Adapter {
+
+        private final DataSetObservable mObservable = new DataSetObservable();
+
+        /**
+         * @return 条目数量
+         */
+        public abstract int getItemCount();
+
+        /**
+         * @param position 条目位置
+         * @return 条目视图类型，相同类型的视图可以相互复用
+         */
+        public int getItemViewType(int position) {
+            return 0;
+        }
+
+        /**
+         * 创建指定类型的条目视图
+         *
+         * @param parent   容器
+         * @param viewType 视图类型
+         * @return 条目视图
+         */
+        @NonNull
+        public abstract View onCreateView(@NonNull ViewGroup parent, int viewType);
+
+        /**
+         * 将条目数据绑定到视图上，视图可能是新创建的，也可能是被回收复用的
+         *
+         * @param view     条目视图
+         * @param position 条目位置
+         */
+        public abstract void onBindView(@NonNull View view, int position);
+
+        /**
+         * 通知数据发生变化，已展示的条目将重新绑定
+         */
+        public final void notifyDataSetChanged() {
+            mObservable.notifyChanged();
+        }
+
+        void registerDataSetObserver(@NonNull DataSetObserver observer) {
+            mObservable.registerObserver(observer);
+        }
+
+        void unregisterDataSetObserver(@NonNull DataSetObserver observer) {
+            mObservable.unregisterObserver(observer);
+        }
+    }
+
     private long mLastScroll;
 
     private final Rect mTempRect = new Rect();
+
+    /**
+     * 焦点查找时只收集该下标范围内子视图的可获取焦点视图，范围由位置索引按滚动方向查询得到
+     */
+    private boolean mFocusSearchRestricted;
+    private int mFocusSearchFirst;
+    private int mFocusSearchLast;
+    private final ArrayList<View> mFocusableCandidates = new ArrayList<>();
+
     private OverScroller mScroller;
+    private final ScrollInterpolator mScrollInterpolator = new ScrollInterpolator();
+    /**
+     * 最近一次由 startScroll 开始的平滑滚动在滚动方向上的起止位置与时长，
+     * 用于判断进行中的动画是否为平滑滚动并计算其当前速度
+     */
+    private int mAnimatedScrollStart;
+    private int mAnimatedScrollFinal;
+    private int mAnimatedScrollDuration;
+    private long mAnimatedScrollStartTime;
     private EdgeEffect mEdgeGlowLeft;
     private EdgeEffect mEdgeGlowRight;
     private EdgeEffect mEdgeGlowTop;
@@ -117,6 +356,14 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
      */
     private View mChildToScrollTo = null;
 
+    /**
+     * 布局未完成时请求滚动到的子视图下标及偏移，在下次布局时执行，没有时为-1。
+     * 与 {@link #mChildToScrollTo} 一样，期间的拖动、滚动及惯性滑动会使其失效
+     */
+    private int mPendingScrollIndex = -1;
+    private int mPendingScrollIndexOffset;
+    private boolean mPendingScrollIndexSmooth;
+
     /**
      * True if the user is currently dragging this ScrollView around. This is
      * not the same as 'is being flinged', which can be checked by
@@ -179,6 +426,305 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
     private NestedScrollingChildHelper mChildHelper;
 
     private OnScrollChangeListener mOnScrollChangeListener;
+    @Nullable
+    private OnFlingListener mOnFlingListener;
+    @Nullable
+    private OnScrollStateChangeListener mOnScrollStateChangeListener;
+    /**
+     * 按帧合并回调的滚动监听，同一帧内的多次滚动只回调一次，携带本帧开始时的滚动位置
+     */
+    private final ArrayList<OnScrollChangeListener> mFrameScrollListeners = new ArrayList<>();
+    /**
+     * 回调时使用的监听快照，复用以避免每帧分配
+     */
+    private OnScrollChangeListener[] mFrameScrollListenersSnapshot = new OnScrollChangeListener[0];
+    @Nullable
+    private OnVisibleRangeChangeListener mOnVisibleRangeChangeListener;
+    /**
+     * 上次回调时视口内的子视图，键为回调的下标，普通模式下按子视图实例判断下标是否仍对应同一子视图
+     */
+    private SparseArray<View> mTrackedVisibleChildren = new SparseArray<>();
+    private SparseArray<View> mVisibleChildrenScratch = new SparseArray<>();
+    /**
+     * 子视图曝光统计，驻留计时由动画帧时间驱动，静止时只在最近一个计时到期时检查一次
+     */
+    private final ViewabilityTracker mViewabilityTracker = new ViewabilityTracker();
+    /**
+     * 当前处于视口及其前后扩展区域内、已回调进入的视口感知子视图
+     */
+    private final ArrayList<View> mViewportAwareChildren = new ArrayList<>();
+    private int mViewportAwareMargin = 0;
+    private boolean mViewabilityCheckScheduled = false;
+    private long mViewabilityCheckTime;
+    private final Runnable mViewabilityCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mViewabilityCheckScheduled = false;
+            updateViewability();
+        }
+    };
+    /**
+     * 按住方向键时，同一帧内的重复按键合并处理，滚动动画改为重新指定目标而不是重新开始
+     */
+    private boolean mKeyRepeatScrollEnabled = false;
+    /**
+     * 连续的平滑滚动是否修改进行中动画的目标位置，而不是在间隔过短时中止动画并直接跳到目标位置
+     */
+    private boolean mSmoothScrollRetargetEnabled = false;
+    private int mSnapAlignment = SNAP_NONE;
+    /**
+     * 吸附模式下每次惯性滑动是否只移动一个子视图
+     */
+    private boolean mSnapPagingEnabled = false;
+    /**
+     * 进行中的吸附动画的目标子视图下标，适配器模式下目标位置基于预估长度，填充窗口修正长度后据此重新指定动画终点；
+     * 动画被其他滚动取代时以记录的动画起止位置判断失效
+     */
+    private int mSnapTargetIndex = -1;
+    /**
+     * 惯性滑动的物理系数，与 {@link OverScroller} 按屏幕密度计算的结果一致
+     */
+    private float mFlingPhysicalCoeff;
+    private int mPendingKeyRepeatDirection;
+    private int mPendingKeyRepeatCount;
+    private boolean mKeyRepeatScheduled = false;
+    /**
+     * 焦点移动由按键重复处理自行滚动，不需要在 requestChildFocus 中再次滚动
+     */
+    private boolean mSuppressFocusScroll = false;
+    private final Runnable mKeyRepeatRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mKeyRepeatScheduled = false;
+            performKeyRepeatScroll();
+        }
+    };
+    private boolean mFrameScrollPending = false;
+    private int mFrameScrollStartX;
+    private int mFrameScrollStartY;
+    private final Runnable mFrameScrollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchFrameScroll();
+        }
+    };
+    private int mScrollState = SCROLL_STATE_IDLE;
+    /**
+     * 已回调惯性滑动预测，等待滚动停止时回调
+     */
+    private boolean mFlingSettlePending = false;
+
+    /**
+     * 条目适配器，非空时进入虚拟化模式
+     */
+    private Adapter mAdapter;
+    private final DataSetObserver mAdapterObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            onAdapterDataSetChanged();
+        }
+    };
+    /**
+     * 虚拟化模式下各条目在滚动方向上占用的长度（含外边距），未添加过的条目使用预估长度
+     */
+    private final ItemExtentTable mItemExtents = new ItemExtentTable();
+    /**
+     * 虚拟化模式下已添加为子视图的条目，key为条目位置。子视图顺序与条目位置顺序保持一致
+     */
+    private final SparseArray<View> mAttachedItems = new SparseArray<>();
+    private final SparseIntArray mAttachedItemTypes = new SparseIntArray();
+    private final ItemViewPool mItemViewPool = new ItemViewPool();
+    /**
+     * 视口前后额外保留条目的区域长度，小于0时取视口长度的一半
+     */
+    private int mVirtualWindowMargin = -1;
+    /**
+     * 外部指定的条目预估长度，为0时以首个测量条目的长度作为预估长度
+     */
+    private int mEstimatedItemExtent = 0;
+    /**
+     * 当前生效的条目预估长度
+     */
+    private int mItemExtentEstimate = 0;
+    private int mVirtualWidthMeasureSpec;
+    private int mVirtualHeightMeasureSpec;
+    private boolean mInVirtualFill = false;
+
+    /**
+     * 子视图在滚动方向上的位置索引，布局完成后重建
+     */
+    private final ChildOffsetIndex mChildOffsets = new ChildOffsetIndex();
+    /**
+     * 子视图增删、调整顺序或请求重新布局后位置索引可能过期，下次读取时按当前位置重建
+     */
+    private boolean mChildOffsetsDirty = false;
+    /**
+     * 位置索引是否由上次布局建立，下标与{@link #mLaidOutChildren}对应；按当前位置重建后下标与当前子视图对应
+     */
+    private boolean mChildOffsetsFromLayout = false;
+
+    /**
+     * 布局完成后缓存的子视图内容起止位置及滚动范围，重新布局或子视图增删时失效
+     */
+    private boolean mContentExtentValid = false;
+    private int mCachedContentStart;
+    private int mCachedContentEnd;
+    private int mCachedScrollRange;
+
+    /**
+     * 可滚动模式下子视图测量缓存的命中统计
+     */
+    private int mMeasureCacheHitCount;
+    private int mMeasureCacheMissCount;
+    private final int[] mTempMeasureSpecs = new int[2];
+    private final int[] mTempMeasuredSizes = new int[2];
+
+    /**
+     * 容器对齐方式及分割线，父类未提供低版本可用的读取方法，在设置时同步记录。
+     * 父类构造过程中即会设置，因此不能有初始值
+     */
+    private int mGravity;
+    private Drawable mDividerDrawable;
+    /**
+     * 可滚动模式下子视图及分割线在滚动方向上的总长度，不含内边距
+     */
+    private int mScrollContentLength;
+
+    /**
+     * 绘制子视图时滚动方向上的可见区域，完全位于区域之外的子视图不再绘制
+     */
+    private int mDrawWindowStart;
+    private int mDrawWindowEnd;
+    private boolean mCullingChildren = false;
+    /**
+     * 丢弃可见区域之外的子视图发起的重绘，滚动时补充一次完整重绘
+     */
+    private boolean mDropOffscreenInvalidation = false;
+    private boolean mDroppedChildInvalidation = false;
+    /**
+     * 最近一次绘制时实际绘制的子视图，其重绘请求对应的旧位置位于可见区域内，不能丢弃
+     */
+    private final ArrayList<View> mDrawnChildren = new ArrayList<>();
+
+    /**
+     * 增量布局：仅个别子视图请求重新布局时，只重新测量这些子视图并平移其后的子视图。
+     * 以下记录上次完整测量时的测量规格及影响布局的容器属性，均未变化时才允许增量测量
+     */
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    /**
+     * 上次测量是否为可滚动模式下的完整测量，其他测量方式之后不能增量测量
+     */
+    private boolean mScrollAxisMeasured = false;
+    private final int[] mLayoutSignature = new int[7];
+    /**
+     * 上次布局时的子视图，用于识别子视图的增删及顺序变化
+     */
+    private View[] mLaidOutChildren = new View[0];
+    private int mLaidOutChildCount = -1;
+    /**
+     * 上次布局时子视图在滚动方向上的总长度
+     */
+    private int mLaidOutContentLength;
+    /**
+     * 增量测量得到的需要重新布局的子视图下标及其在滚动方向上的新长度（含外边距）
+     */
+    private int[] mDirtyChildIndices = new int[0];
+    private int[] mDirtyChildExtents = new int[0];
+    private int mDirtyChildCount;
+    private boolean mIncrementalLayoutPending = false;
+
+    /**
+     * 布局边界模式：容器尺寸固定时吸收子视图的布局请求，下一帧只对自身重新测量及布局，不再向上传递
+     */
+    private boolean mLayoutBoundaryEnabled = false;
+    private boolean mBoundaryLayoutPending = false;
+    /**
+     * 自身的布局参数或可见性变化会影响父容器的布局，此时布局请求必须向上传递
+     */
+    private boolean mForceLayoutPropagation = false;
+    /**
+     * 最近一次测量时父容器给出的测量规格
+     */
+    private int mBoundaryWidthMeasureSpec;
+    private int mBoundaryHeightMeasureSpec;
+    /**
+     * 最近一次测量时自身的布局参数，依次为宽、高及左上右下外边距。直接修改布局参数后调用
+     * requestLayout 时，与记录值不一致说明请求来自自身尺寸的变化，必须向上传递
+     */
+    private ViewGroup.LayoutParams mBoundaryLayoutParams;
+    private final int[] mBoundaryLayoutParamValues = new int[6];
+    /**
+     * 批量更新：嵌套层数，批量更新期间的布局请求、滚动位置修正及滚动监听回调均推迟到结束时统一处理
+     */
+    private int mBatchDepth = 0;
+    private boolean mBatchLayoutRequested = false;
+    /**
+     * 批量更新已结束，等待统一的布局完成
+     */
+    private boolean mBatchFinishing = false;
+    /**
+     * 批量更新期间调用过{@link #scrollTo(int, int)}，滚动位置已生效但尚未限制在滚动范围内
+     */
+    private boolean mBatchScrollPending = false;
+    private boolean mBatchScrollChanged = false;
+    private int mBatchOldScrollX;
+    private int mBatchOldScrollY;
+    /**
+     * 滚动锚点：视口起始处的子视图及其起始位置相对于滚动位置的偏移，布局完成后据此恢复滚动位置
+     */
+    @Nullable
+    private View mScrollAnchorChild;
+    private int mScrollAnchorOffset;
+    /**
+     * 视口之前的子视图增删或尺寸变化时，是否保持视口内的内容不动
+     */
+    private boolean mScrollAnchoringEnabled = false;
+
+    /**
+     * 惯性滑动预取：根据滑动的预计终点，利用每帧绘制之后的空闲时间，提前创建、绑定并测量即将进入窗口的条目
+     */
+    private final SparseArray<View> mPrefetchedItems = new SparseArray<>();
+    private final SparseIntArray mPrefetchedItemTypes = new SparseIntArray();
+    private boolean mPrefetchActive = false;
+    private boolean mPrefetchScheduled = false;
+    private int mPrefetchFinalScroll;
+    private long mPrefetchFrameStartNanos;
+    private long mFrameIntervalNanos;
+    /**
+     * 单个条目预取耗时的滑动平均值，剩余时间不足时不再开始预取
+     */
+    private long mAverageItemPrepareNanos;
+    private final Runnable mPrefetchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            prefetchItems();
+        }
+    };
+
+    /**
+     * 延迟创建的子视图占位数量，仅作为是否需要检查占位的依据
+     */
+    private int mLazySlotCount = 0;
+    /**
+     * 视口前后提前创建占位子视图的区域长度，小于0时取视口长度的一半
+     */
+    private int mLazySlotMargin = -1;
+    private boolean mLazySlotInflateScheduled = false;
+    private final Runnable mLazySlotInflateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mLazySlotInflateScheduled = false;
+            inflateLazySlotsNearViewport();
+        }
+    };
+
+    private final Runnable mBoundaryLayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            performBoundaryLayout();
+        }
+    };
 
     public ScrollLinearLayout(Context context) {
         super(context);
@@ -445,11 +991,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         } else if (getOrientation() == VERTICAL) {
             return getWidth() - getPaddingLeft() - getPaddingRight();
         } else {
-            View firstView = getChildAt(0);
-            MarginLayoutParams firstLayoutParams = (MarginLayoutParams) firstView.getLayoutParams();
-            View lastView = getChildAt(childCount - 1);
-            MarginLayoutParams lastLayoutParams = (MarginLayoutParams) lastView.getLayoutParams();
-            return lastView.getRight() - firstView.getLeft() + firstLayoutParams.leftMargin + lastLayoutParams.rightMargin;
+            return getChildContentEnd() - getChildContentStart();
         }
     }
 
@@ -465,35 +1007,211 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         } else if (getOrientation() == HORIZONTAL) {
             return getHeight() - getPaddingTop() - getPaddingBottom();
         } else {
-            View firstView = getChildAt(0);
-            MarginLayoutParams firstLayoutParams = (MarginLayoutParams) firstView.getLayoutParams();
-            View lastView = getChildAt(childCount - 1);
-            MarginLayoutParams lastLayoutParams = (MarginLayoutParams) lastView.getLayoutParams();
-            return lastView.getBottom() - firstView.getTop() + firstLayoutParams.topMargin + lastLayoutParams.bottomMargin;
+            return getChildContentEnd() - getChildContentStart();
         }
     }
 
-    @Override
-    public boolean shouldDelayChildPressedState() {
-        return mScrollable;
+    /**
+     * 获取子视图内容在滚动方向上的起始位置（含外边距），调用方需保证存在子视图
+     *
+     * @return 起始位置
+     */
+    private int getChildContentStart() {
+        if (mContentExtentValid) {
+            return mCachedContentStart;
+        }
+        if (mAdapter != null) {
+            return getOrientation() == HORIZONTAL ? getPaddingLeft() : getPaddingTop();
+        }
+        ensureChildOffsets();
+        return mChildOffsets.getContentStart();
     }
 
-    @Override
-    protected float getLeftFadingEdgeStrength() {
-        if (getChildCount() == 0 || !mScrollable) {
-            return 0.0f;
+    /**
+     * 获取子视图内容在滚动方向上的结束位置（含外边距），调用方需保证存在子视图
+     *
+     * @return 结束位置
+     */
+    private int getChildContentEnd() {
+        if (mContentExtentValid) {
+            return mCachedContentEnd;
         }
-
-        final int length = getHorizontalFadingEdgeLength();
-        int mScrollX = getScrollX();
-        if (mScrollX < length) {
-            return mScrollX / (float) length;
+        if (mAdapter != null) {
+            return (getOrientation() == HORIZONTAL ? getPaddingLeft() : getPaddingTop()) + mItemExtents.getTotal();
         }
-
-        return 1.0f;
+        ensureChildOffsets();
+        return mChildOffsets.getContentEnd();
     }
 
-    @Override
+    /**
+     * 重新计算并缓存子视图内容起止位置及滚动范围，滚动过程中直接使用缓存值
+     */
+    private void updateContentExtentCache() {
+        mContentExtentValid = false;
+        if (getChildCount() > 0) {
+            mCachedContentStart = getChildContentStart();
+            mCachedContentEnd = getChildContentEnd();
+        }
+        mCachedScrollRange = getScrollRange();
+        mContentExtentValid = true;
+    }
+
+    /**
+     * 确保子视图位置索引与当前子视图一致，布局完成前子视图发生增删、调整顺序或请求重新布局时按当前位置重建
+     */
+    private void ensureChildOffsets() {
+        if (mChildOffsetsDirty || mChildOffsets.getCount() != getChildCount()) {
+            mChildOffsets.rebuild(this, getOrientation() == HORIZONTAL);
+            mChildOffsetsDirty = false;
+            mChildOffsetsFromLayout = false;
+        }
+    }
+
+    /**
+     * 滚动方向上参与位置索引的数量，适配器模式下为条目数量，否则为子视图数量
+     */
+    private int getOffsetIndexCount() {
+        if (mAdapter != null) {
+            return mItemExtents.getCount();
+        }
+        ensureChildOffsets();
+        return mChildOffsets.getCount();
+    }
+
+    private int getOffsetIndexStart(int index) {
+        if (mAdapter != null) {
+            return getChildContentStart() + mItemExtents.getOffset(index);
+        }
+        return mChildOffsets.getStart(index);
+    }
+
+    private int getOffsetIndexEnd(int index) {
+        if (mAdapter != null) {
+            return getOffsetIndexStart(index) + mItemExtents.getExtent(index);
+        }
+        return mChildOffsets.getEnd(index);
+    }
+
+    /**
+     * 查找起始位置不大于指定位置的最后一个下标，位置越界时返回首尾下标，调用方需保证数量大于0
+     */
+    private int findOffsetIndex(int offset) {
+        if (mAdapter != null) {
+            return mItemExtents.indexAtOffset(offset - getChildContentStart());
+        }
+        return mChildOffsets.indexAtOffset(offset);
+    }
+
+    /**
+     * 查找滚动方向上覆盖指定位置的子视图下标，二分查找，O(log n)。
+     * 适配器模式下返回条目位置，对应的条目不一定已经添加为子视图
+     *
+     * @param offset 滚动方向上的位置，与子视图坐标一致，即包含内边距而不包含滚动偏移
+     * @return 子视图下标，位置落在子视图之外（含子视图之间的间隙）时返回-1
+     */
+    public int childIndexAtOffset(int offset) {
+        if (getOffsetIndexCount() == 0) {
+            return -1;
+        }
+        final int index = findOffsetIndex(offset);
+        if (offset < getOffsetIndexStart(index) || offset >= getOffsetIndexEnd(index)) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * 获取首个与视口相交的子视图下标，适配器模式下返回条目位置
+     *
+     * @return 子视图下标，不存在时返回-1
+     */
+    public int firstVisibleIndex() {
+        return firstVisibleIndexAt(getOrientation() == HORIZONTAL ? getScrollX() : getScrollY());
+    }
+
+    /**
+     * @param scroll 滚动方向上的滚动位置
+     * @return 滚动到指定位置时第一个可见的子视图下标，适配器模式下为条目位置，没有时返回-1
+     */
+    private int firstVisibleIndexAt(int scroll) {
+        final int count = getOffsetIndexCount();
+        if (count == 0) {
+            return -1;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int visibleStart = scroll + (horizontal ? getPaddingLeft() : getPaddingTop());
+        final int visibleEnd = visibleStart + getViewportLength();
+        int index = findOffsetIndex(visibleStart);
+        if (getOffsetIndexEnd(index) <= visibleStart) {
+            index++;
+        }
+        if (index >= count || getOffsetIndexStart(index) >= visibleEnd) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * 获取最后一个与视口相交的子视图下标，适配器模式下返回条目位置
+     *
+     * @return 子视图下标，不存在时返回-1
+     */
+    public int lastVisibleIndex() {
+        return lastVisibleIndexAt(getOrientation() == HORIZONTAL ? getScrollX() : getScrollY());
+    }
+
+    /**
+     * @param scroll 滚动方向上的滚动位置
+     * @return 滚动到指定位置时最后一个可见的子视图下标，适配器模式下为条目位置，没有时返回-1
+     */
+    private int lastVisibleIndexAt(int scroll) {
+        if (getOffsetIndexCount() == 0) {
+            return -1;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int visibleStart = scroll + (horizontal ? getPaddingLeft() : getPaddingTop());
+        final int visibleEnd = visibleStart + getViewportLength();
+        final int index = findOffsetIndex(visibleEnd - 1);
+        if (getOffsetIndexStart(index) >= visibleEnd || getOffsetIndexEnd(index) <= visibleStart) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * 获取滚动方向上去除内边距后的视口长度
+     *
+     * @return 视口长度
+     */
+    private int getViewportLength() {
+        if (getOrientation() == HORIZONTAL) {
+            return getWidth() - getPaddingLeft() - getPaddingRight();
+        } else {
+            return getHeight() - getPaddingTop() - getPaddingBottom();
+        }
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return mScrollable;
+    }
+
+    @Override
+    protected float getLeftFadingEdgeStrength() {
+        if (getChildCount() == 0 || !mScrollable) {
+            return 0.0f;
+        }
+
+        final int length = getHorizontalFadingEdgeLength();
+        int mScrollX = getScrollX();
+        if (mScrollX < length) {
+            return mScrollX / (float) length;
+        }
+
+        return 1.0f;
+    }
+
+    @Override
     protected float getRightFadingEdgeStrength() {
         if (getChildCount() == 0 || !mScrollable) {
             return 0.0f;
@@ -501,9 +1219,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
 
         final int length = getHorizontalFadingEdgeLength();
         final int rightEdge = getWidth() - getPaddingRight();
-        final View lastChild = getChildAt(getChildCount() - 1);
-        final MarginLayoutParams lastChildParams = (MarginLayoutParams) lastChild.getLayoutParams();
-        final int span = lastChild.getRight() + lastChildParams.rightMargin - getScrollX() - rightEdge;
+        final int span = getChildContentEnd() - getScrollX() - rightEdge;
         if (span < length) {
             return span / (float) length;
         }
@@ -534,9 +1250,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
 
         final int length = getVerticalFadingEdgeLength();
         final int bottomEdge = getHeight() - getPaddingBottom();
-        final View lastChild = getChildAt(getChildCount() - 1);
-        final MarginLayoutParams lastChildParams = (MarginLayoutParams) lastChild.getLayoutParams();
-        final int span = lastChild.getBottom() + lastChildParams.bottomMargin - getScrollY() - bottomEdge;
+        final int span = getChildContentEnd() - getScrollY() - bottomEdge;
         if (span < length) {
             return span / (float) length;
         }
@@ -553,7 +1267,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
     }
 
     private void initScrollView() {
-        mScroller = new OverScroller(getContext());
+        mScroller = new OverScroller(getContext(), mScrollInterpolator);
         setFocusable(true);
         setDescendantFocusability(FOCUS_AFTER_DESCENDANTS);
         setWillNotDraw(false);
@@ -563,6 +1277,11 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
         mOverscrollDistance = configuration.getScaledOverscrollDistance();
         mOverflingDistance = configuration.getScaledOverflingDistance();
+        final float ppi = getContext().getResources().getDisplayMetrics().density * 160.0f;
+        mFlingPhysicalCoeff = 9.80665f // g (m/s^2), SensorManager.GRAVITY_EARTH
+                * 39.37f // inch/meter
+                * ppi
+                * 0.84f; // look and feel tuning
     }
 
     /**
@@ -579,367 +1298,1346 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
     }
 
     /**
-     * @return Returns true this ScrollView can be scrolled
+     * 添加按帧合并的滚动监听。与{@link #setOnScrollChangeListener(OnScrollChangeListener)}不同，
+     * 同一帧内的多次滚动（触摸、嵌套滚动、惯性滑动等）合并为下一次动画帧时的一次回调，
+     * 回调中的原滚动位置为本帧第一次滚动之前的位置，两者之差即为本帧的净滚动距离
+     *
+     * @param l 监听
      */
-    private boolean canScroll() {
-        if (mScrollable && getChildCount() > 0) {
-            if (getOrientation() == HORIZONTAL) {
-                return getWidth() - getPaddingLeft() - getPaddingRight() < getChildContentWidth();
-            } else {
-                return getHeight() - getPaddingTop() - getPaddingBottom() < getChildContentHeight();
-            }
+    public void addOnScrollChangeListener(@NonNull OnScrollChangeListener l) {
+        if (!mFrameScrollListeners.contains(l)) {
+            mFrameScrollListeners.add(l);
         }
-        return false;
     }
 
-    public boolean isScrollable() {
-        return mScrollable;
+    public void removeOnScrollChangeListener(@NonNull OnScrollChangeListener l) {
+        mFrameScrollListeners.remove(l);
     }
 
-    public void setScrollable(boolean scrollable) {
-        if (this.mScrollable != scrollable) {
-            this.mScrollable = scrollable;
-            if (this.mScrollable) {
-                initOrResetVelocityTracker();
-            } else {
-                recycleVelocityTracker();
-            }
-            if (getChildCount() > 0) {
-                // TODO 滚动到起点
-                requestLayout();
-            }
-        }
+    public void clearOnScrollChangeListeners() {
+        mFrameScrollListeners.clear();
     }
 
     /**
-     * @return Whether arrow scrolling will animate its transition.
+     * 记录本帧第一次滚动之前的位置，并在下一次动画帧时统一回调
      */
-    public boolean isSmoothScrollingEnabled() {
-        return mSmoothScrollingEnabled;
+    private void scheduleFrameScroll(int oldScrollX, int oldScrollY) {
+        if (mFrameScrollListeners.isEmpty() || mFrameScrollPending) {
+            return;
+        }
+        mFrameScrollPending = true;
+        mFrameScrollStartX = oldScrollX;
+        mFrameScrollStartY = oldScrollY;
+        ViewCompat.postOnAnimation(this, mFrameScrollRunnable);
+    }
+
+    private void dispatchFrameScroll() {
+        if (mBatchDepth > 0 || mBatchFinishing) {
+            // 批量更新期间的滚动位置尚未确定，顺延到下一帧
+            ViewCompat.postOnAnimation(this, mFrameScrollRunnable);
+            return;
+        }
+        mFrameScrollPending = false;
+        final int scrollX = getScrollX();
+        final int scrollY = getScrollY();
+        if (scrollX == mFrameScrollStartX && scrollY == mFrameScrollStartY) {
+            return;
+        }
+        // 按注册顺序遍历快照，回调中增删监听不影响本次回调
+        final int count = mFrameScrollListeners.size();
+        final OnScrollChangeListener[] listeners = mFrameScrollListeners.toArray(mFrameScrollListenersSnapshot);
+        mFrameScrollListenersSnapshot = listeners;
+        for (int i = 0; i < count; i++) {
+            listeners[i].onScrollChange(this, scrollX, scrollY, mFrameScrollStartX, mFrameScrollStartY);
+        }
+        Arrays.fill(listeners, 0, count, null);
     }
 
     /**
-     * Set whether arrow scrolling will animate its transition.
+     * 设置可见范围变化回调，设置后立即以当前的可见范围回调一次进入视口
      *
-     * @param smoothScrollingEnabled whether arrow scrolling will animate its transition
+     * @param l 回调
      */
-    public void setSmoothScrollingEnabled(boolean smoothScrollingEnabled) {
-        mSmoothScrollingEnabled = smoothScrollingEnabled;
+    public void setOnVisibleRangeChangeListener(@Nullable OnVisibleRangeChangeListener l) {
+        mOnVisibleRangeChangeListener = l;
+        mTrackedVisibleChildren.clear();
+        if (l != null && ViewCompat.isLaidOut(this)) {
+            updateVisibleRange();
+        }
     }
 
-    @Override
-    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
-        super.onScrollChanged(l, t, oldl, oldt);
+    /**
+     * 根据位置索引查找当前的首尾可见子视图，跳过 GONE 的子视图，与上次回调时的子视图比较后回调进入或离开。
+     * 普通模式下增删子视图会使下标偏移，下标相同但子视图不同时按离开旧子视图、进入新子视图回调
+     */
+    private void updateVisibleRange() {
+        final OnVisibleRangeChangeListener listener = mOnVisibleRangeChangeListener;
+        if (listener == null) {
+            return;
+        }
+        final SparseArray<View> visible = mVisibleChildrenScratch;
+        visible.clear();
+        final int first = firstVisibleIndex();
+        final int last = first < 0 ? -1 : lastVisibleIndex();
+        for (int i = first; i >= 0 && i <= last; i++) {
+            final View child = mAdapter != null ? mAttachedItems.get(i) : getChildAt(i);
+            if (child == null || child.getVisibility() != GONE) {
+                visible.put(i, child);
+            }
+        }
 
-        if (mOnScrollChangeListener != null) {
-            mOnScrollChangeListener.onScrollChange(this, l, t, oldl, oldt);
+        final SparseArray<View> tracked = mTrackedVisibleChildren;
+        mTrackedVisibleChildren = visible;
+        mVisibleChildrenScratch = tracked;
+        for (int i = 0, size = tracked.size(); i < size; i++) {
+            if (!isTrackedVisibleChild(visible, tracked.keyAt(i), tracked.valueAt(i))) {
+                listener.onChildExitViewport(this, tracked.keyAt(i));
+            }
+        }
+        for (int i = 0, size = visible.size(); i < size; i++) {
+            if (!isTrackedVisibleChild(tracked, visible.keyAt(i), visible.valueAt(i))) {
+                listener.onChildEnterViewport(this, visible.keyAt(i));
+            }
         }
     }
 
-    @Override
-    public boolean dispatchKeyEvent(KeyEvent event) {
-        // Let the focused view and/or our descendants get the key first
-        return super.dispatchKeyEvent(event) || (mScrollable && executeKeyEvent(event));
+    /**
+     * 适配器模式下只比较条目位置，普通模式下还要求下标对应同一子视图
+     */
+    private boolean isTrackedVisibleChild(SparseArray<View> children, int index, View child) {
+        final int i = children.indexOfKey(index);
+        return i >= 0 && (mAdapter != null || children.valueAt(i) == child);
     }
 
     /**
-     * You can call this function yourself to have the scroll view perform
-     * scrolling from a key event, just as if the event had been dispatched to
-     * it by the view hierarchy.
+     * 设置视口感知子视图的扩展区域，子视图与视口前后扩展该长度后的区域相交即视为进入视口
      *
-     * @param event The key event to execute.
-     * @return Return true if the event was handled, else false.
+     * @param margin 扩展长度，默认为0
      */
-    public boolean executeKeyEvent(@NonNull KeyEvent event) {
-        mTempRect.setEmpty();
-
-        if (!canScroll()) {
-            if (isFocused() && event.getKeyCode() != KeyEvent.KEYCODE_BACK) {
-                View currentFocused = findFocus();
-                if (currentFocused == this) currentFocused = null;
-                final int direction = getOrientation() == HORIZONTAL ? View.FOCUS_RIGHT : View.FOCUS_DOWN;
-                View nextFocused = FocusFinder.getInstance().findNextFocus(this,
-                        currentFocused, direction);
-                return nextFocused != null
-                        && nextFocused != this
-                        && nextFocused.requestFocus(direction);
-            }
-            return false;
+    public void setViewportAwareMargin(int margin) {
+        mViewportAwareMargin = Math.max(0, margin);
+        if (ViewCompat.isLaidOut(this)) {
+            updateViewportAwareChildren();
         }
+    }
 
-        boolean handled = false;
-        if (event.getAction() == KeyEvent.ACTION_DOWN) {
-            switch (event.getKeyCode()) {
-                case KeyEvent.KEYCODE_DPAD_LEFT:
-                    if (!event.isAltPressed()) {
-                        handled = arrowScroll(View.FOCUS_LEFT);
-                    } else {
-                        handled = fullScroll(View.FOCUS_LEFT);
-                    }
-                    break;
-                case KeyEvent.KEYCODE_DPAD_RIGHT:
-                    if (!event.isAltPressed()) {
-                        handled = arrowScroll(View.FOCUS_RIGHT);
-                    } else {
-                        handled = fullScroll(View.FOCUS_RIGHT);
-                    }
-                    break;
-                case KeyEvent.KEYCODE_DPAD_UP:
-                    if (!event.isAltPressed()) {
-                        handled = arrowScroll(View.FOCUS_UP);
-                    } else {
-                        handled = fullScroll(View.FOCUS_UP);
-                    }
-                    break;
-                case KeyEvent.KEYCODE_DPAD_DOWN:
-                    if (!event.isAltPressed()) {
-                        handled = arrowScroll(View.FOCUS_DOWN);
-                    } else {
-                        handled = fullScroll(View.FOCUS_DOWN);
-                    }
-                    break;
-                case KeyEvent.KEYCODE_SPACE:
-                    if (getOrientation() == HORIZONTAL) {
-                        pageScroll(event.isShiftPressed() ? View.FOCUS_LEFT : View.FOCUS_RIGHT);
-                    } else {
-                        pageScroll(event.isShiftPressed() ? View.FOCUS_UP : View.FOCUS_DOWN);
-                    }
-                    break;
+    public int getViewportAwareMargin() {
+        return mViewportAwareMargin;
+    }
+
+    /**
+     * 回调进入扩展区域的视口感知子视图，并检查已进入的子视图是否离开或已被移除。
+     * 只遍历扩展区域内的子视图及已进入的子视图
+     */
+    private void updateViewportAwareChildren() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int windowStart = (horizontal ? getScrollX() + getPaddingLeft() : getScrollY() + getPaddingTop())
+                - mViewportAwareMargin;
+        final int windowEnd = windowStart + getViewportLength() + mViewportAwareMargin * 2;
+
+        for (int i = mViewportAwareChildren.size() - 1; i >= 0; i--) {
+            final View child = mViewportAwareChildren.get(i);
+            if (child.getParent() != this || !isChildInWindow(child, horizontal, windowStart, windowEnd)) {
+                mViewportAwareChildren.remove(i);
+                ((ViewportAware) child).onLeaveViewport();
             }
         }
 
-        return handled;
-    }
-
-    private boolean inChild(int x, int y) {
-        if (mScrollable && getChildCount() > 0) {
-            final View firstChild = getChildAt(0);
-            final View lastChild = getChildAt(getChildCount() - 1);
-            if (getOrientation() == HORIZONTAL) {
-                final int scrollX = getScrollX();
-                return !(y < getPaddingTop()
-                        || y >= getHeight() - getPaddingBottom()
-                        || x < firstChild.getLeft() - scrollX
-                        || x >= lastChild.getRight() - scrollX);
-            } else {
-                final int scrollY = getScrollY();
-                return !(y < firstChild.getTop() - scrollY
-                        || y >= lastChild.getBottom() - scrollY
-                        || x < getPaddingLeft()
-                        || x >= getWidth() - getPaddingRight());
+        final int count = getOffsetIndexCount();
+        if (count == 0) {
+            return;
+        }
+        final int childCount = getChildCount();
+        for (int index = Math.max(0, findOffsetIndex(windowStart)); index < count; index++) {
+            if (getOffsetIndexStart(index) >= windowEnd) {
+                break;
+            }
+            final View child = mAdapter != null ? mAttachedItems.get(index)
+                    : index < childCount ? getChildAt(index) : null;
+            if (child instanceof ViewportAware && !mViewportAwareChildren.contains(child)
+                    && isChildInWindow(child, horizontal, windowStart, windowEnd)) {
+                mViewportAwareChildren.add(child);
+                ((ViewportAware) child).onEnterViewport();
             }
         }
-        return false;
     }
 
-    private void initOrResetVelocityTracker() {
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
-        } else {
-            mVelocityTracker.clear();
+    private static boolean isChildInWindow(View child, boolean horizontal, int windowStart, int windowEnd) {
+        if (child.getVisibility() == GONE) {
+            return false;
         }
+        final int start = horizontal ? child.getLeft() : child.getTop();
+        final int end = horizontal ? child.getRight() : child.getBottom();
+        return end > windowStart && start < windowEnd;
     }
 
-    private void initVelocityTrackerIfNotExists() {
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
+    /**
+     * 所有已进入的视口感知子视图回调离开
+     */
+    private void leaveAllViewportAwareChildren() {
+        for (int i = mViewportAwareChildren.size() - 1; i >= 0; i--) {
+            ((ViewportAware) mViewportAwareChildren.remove(i)).onLeaveViewport();
         }
     }
 
-    private void recycleVelocityTracker() {
-        if (mVelocityTracker != null) {
-            mVelocityTracker.recycle();
-            mVelocityTracker = null;
+    /**
+     * 添加曝光规则：可见范围内的子视图在滚动方向上的曝光比例持续不低于阈值达到指定时长后回调
+     *
+     * @param threshold   曝光比例阈值，取值(0, 1]，超出范围时抛出 {@link IllegalArgumentException}
+     * @param dwellMillis 驻留时长，单位毫秒，0表示达到阈值立即回调
+     * @param l           回调，同一回调可以用于多条规则
+     */
+    public void addViewabilityRule(float threshold, long dwellMillis, @NonNull OnViewabilityListener l) {
+        mViewabilityTracker.addRule(threshold, Math.max(0, dwellMillis), l);
+        if (ViewCompat.isLaidOut(this)) {
+            updateViewability();
         }
     }
 
-    @Override
-    public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
-        if (mScrollable && disallowIntercept) {
-            recycleVelocityTracker();
-        }
-        super.requestDisallowInterceptTouchEvent(disallowIntercept);
+    /**
+     * 移除使用指定回调的所有曝光规则
+     */
+    public void removeViewabilityRules(@NonNull OnViewabilityListener l) {
+        mViewabilityTracker.removeRules(l);
     }
 
-    @Override
-    public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if (!mScrollable) {
-            return super.onInterceptTouchEvent(ev);
+    public void clearViewabilityRules() {
+        mViewabilityTracker.clear();
+        if (mViewabilityCheckScheduled) {
+            mViewabilityCheckScheduled = false;
+            removeCallbacks(mViewabilityCheckRunnable);
         }
-        /*
-         * This method JUST determines whether we want to intercept the motion.
-         * If we return true, onMotionEvent will be called and we do the actual
-         * scrolling there.
-         */
+    }
 
-        /*
-         * Shortcut the most recurring case: the user is in the dragging
-         * state and he is moving his finger.  We want to intercept this
-         * motion.
-         */
-        final int action = ev.getAction();
-        if ((action == MotionEvent.ACTION_MOVE) && (mIsBeingDragged)) {
-            return true;
+    /**
+     * 子视图在滚动方向上处于视口内的比例，根据滚动位置及子视图边界计算，不考虑上层视图的裁剪
+     *
+     * @param index 子视图下标，适配器模式下为条目位置
+     * @return 曝光比例，子视图不存在、不可见或不在视口内时为0
+     */
+    public float getExposedFraction(int index) {
+        final View child;
+        if (mAdapter != null) {
+            child = mAttachedItems.get(index);
+        } else {
+            child = index >= 0 && index < getChildCount() ? getChildAt(index) : null;
+        }
+        if (child == null || child.getVisibility() != VISIBLE) {
+            return 0;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int start = horizontal ? child.getLeft() : child.getTop();
+        final int end = horizontal ? child.getRight() : child.getBottom();
+        if (end <= start) {
+            return 0;
         }
+        final int visibleStart = horizontal ? getScrollX() + getPaddingLeft() : getScrollY() + getPaddingTop();
+        final int visibleEnd = visibleStart + getViewportLength();
+        final int visible = Math.min(end, visibleEnd) - Math.max(start, visibleStart);
+        return visible <= 0 ? 0 : (float) visible / (end - start);
+    }
 
-        // TODO
-        if (getOrientation() == HORIZONTAL && super.onInterceptTouchEvent(ev)) {
-            return true;
+    /**
+     * 曝光统计按子视图实例区分普通模式下的计时状态，适配器模式下条目位置不随增删偏移，返回null按位置区分
+     */
+    @Nullable
+    View getViewabilityChild(int index) {
+        return mAdapter == null && index < getChildCount() ? getChildAt(index) : null;
+    }
+
+    private void updateViewability() {
+        if (mViewabilityTracker.isEmpty()) {
+            return;
+        }
+        if (!isShown() || getWindowVisibility() != VISIBLE) {
+            // 容器不可见或应用处于后台时曝光比例视为0，重新可见后重新计时
+            mViewabilityTracker.clearStates();
+            if (mViewabilityCheckScheduled) {
+                mViewabilityCheckScheduled = false;
+                removeCallbacks(mViewabilityCheckRunnable);
+            }
+            return;
+        }
+        final int first = firstVisibleIndex();
+        final int last = first < 0 ? -1 : lastVisibleIndex();
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        final long delay = mViewabilityTracker.update(this, last < 0 ? -1 : first, last, now);
+        if (delay < 0) {
+            return;
         }
+        final long checkTime = now + delay;
+        if (!mViewabilityCheckScheduled || checkTime < mViewabilityCheckTime) {
+            removeCallbacks(mViewabilityCheckRunnable);
+            mViewabilityCheckScheduled = true;
+            mViewabilityCheckTime = checkTime;
+            ViewCompat.postOnAnimationDelayed(this, mViewabilityCheckRunnable, delay);
+        }
+    }
 
-        switch (action & MotionEvent.ACTION_MASK) {
-            case MotionEvent.ACTION_MOVE: {
-                /*
-                 * mIsBeingDragged == false, otherwise the shortcut would have caught it. Check
-                 * whether the user has moved far enough from his original down touch.
-                 */
+    /**
+     * 设置滚动状态变化回调
+     *
+     * @param l 回调
+     */
+    public void setOnScrollStateChangeListener(@Nullable OnScrollStateChangeListener l) {
+        mOnScrollStateChangeListener = l;
+    }
 
-                /*
-                 * Locally do absolute value. mLastMotionY is set to the y value
-                 * of the down event.
-                 */
-                final int activePointerId = mActivePointerId;
-                if (activePointerId == INVALID_POINTER) {
-                    // If we don't have a valid id, the touch down wasn't on content.
-                    break;
-                }
+    /**
+     * @return 当前的滚动状态，{@link #SCROLL_STATE_IDLE}、{@link #SCROLL_STATE_DRAGGING}或{@link #SCROLL_STATE_SETTLING}
+     */
+    public int getScrollState() {
+        return mScrollState;
+    }
 
-                final int pointerIndex = ev.findPointerIndex(activePointerId);
-                if (pointerIndex == -1) {
-                    Log.e(TAG, "Invalid pointerId=" + activePointerId
-                            + " in onInterceptTouchEvent");
-                    break;
-                }
+    /**
+     * 当前滚动方向上的速度，拖动时取自手指的速度，惯性滑动或平滑滚动时取自滚动器
+     *
+     * @return 每秒滚动的像素数，滚动位置增大时为正，静止时为0
+     */
+    public float getScrollVelocity() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        if (mIsBeingDragged && mVelocityTracker != null) {
+            mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+            // 手指移动方向与滚动方向相反
+            return horizontal ? -mVelocityTracker.getXVelocity(mActivePointerId)
+                    : -mVelocityTracker.getYVelocity(mActivePointerId);
+        }
+        if (!mScroller.isFinished()) {
+            final int remaining = horizontal
+                    ? mScroller.getFinalX() - mScroller.getCurrX() : mScroller.getFinalY() - mScroller.getCurrY();
+            final float velocity = mScroller.getCurrVelocity();
+            return remaining < 0 ? -velocity : velocity;
+        }
+        return 0;
+    }
 
-                if (getOrientation() == HORIZONTAL) {
-                    final int x = (int) ev.getX(pointerIndex);
-                    final int xDiff = Math.abs(x - mLastMotionX);
-                    if (xDiff > mTouchSlop
-                            && (getNestedScrollAxes() & ViewCompat.SCROLL_AXIS_HORIZONTAL) == 0) {
-                        mIsBeingDragged = true;
-                        mLastMotionX = x;
-                        initVelocityTrackerIfNotExists();
-                        mVelocityTracker.addMovement(ev);
-                        mNestedXOffset = 0;
-                        final ViewParent parent = getParent();
-                        if (parent != null) {
-                            parent.requestDisallowInterceptTouchEvent(true);
-                        }
-                    }
-                } else {
-                    final int y = (int) ev.getY(pointerIndex);
-                    final int yDiff = Math.abs(y - mLastMotionY);
-                    if (yDiff > mTouchSlop
-                            && (getNestedScrollAxes() & ViewCompat.SCROLL_AXIS_VERTICAL) == 0) {
-                        mIsBeingDragged = true;
-                        mLastMotionY = y;
-                        initVelocityTrackerIfNotExists();
-                        mVelocityTracker.addMovement(ev);
-                        mNestedYOffset = 0;
-                        final ViewParent parent = getParent();
-                        if (parent != null) {
-                            parent.requestDisallowInterceptTouchEvent(true);
-                        }
-                    }
-                }
-                break;
-            }
+    /**
+     * 根据拖动标记及滚动器状态更新滚动状态，变化时回调
+     */
+    private void updateScrollState() {
+        final int state;
+        if (mIsBeingDragged) {
+            state = SCROLL_STATE_DRAGGING;
+        } else if (!mScroller.isFinished()) {
+            state = SCROLL_STATE_SETTLING;
+        } else {
+            state = SCROLL_STATE_IDLE;
+        }
+        if (state == mScrollState) {
+            return;
+        }
+        mScrollState = state;
+        if (mOnScrollStateChangeListener != null) {
+            mOnScrollStateChangeListener.onScrollStateChanged(this, state);
+        }
+    }
 
-            case MotionEvent.ACTION_DOWN: {
-                final int x = (int) ev.getX();
-                final int y = (int) ev.getY();
-                if (!inChild(x, y)) {
-                    mIsBeingDragged = false;
-                    recycleVelocityTracker();
-                    break;
-                }
+    /**
+     * 设置惯性滑动的落点预测及滚动停止回调
+     *
+     * @param l 回调
+     */
+    public void setOnFlingListener(@Nullable OnFlingListener l) {
+        mOnFlingListener = l;
+        if (l == null) {
+            mFlingSettlePending = false;
+        }
+    }
 
-                /*
-                 * Remember location of down touch.
-                 * ACTION_DOWN always refers to pointer index 0.
-                 */
-                boolean horizontal = getOrientation() == HORIZONTAL;
-                if (horizontal) {
-                    mLastMotionX = x;
-                } else {
-                    mLastMotionY = y;
-                }
-                mActivePointerId = ev.getPointerId(0);
+    /**
+     * 设置条目适配器。非空时进入虚拟化模式，子视图由容器根据滚动位置自动添加和回收，
+     * 此时不应再直接增删子视图；为空时退出虚拟化模式并移除所有子视图
+     *
+     * @param adapter 条目适配器
+     */
+    public void setAdapter(@Nullable Adapter adapter) {
+        if (mAdapter == adapter) {
+            return;
+        }
+        if (mAdapter != null) {
+            mAdapter.unregisterDataSetObserver(mAdapterObserver);
+        }
+        stopFlingPrefetch();
+        removeAllViewsInLayout();
+        mAttachedItems.clear();
+        mAttachedItemTypes.clear();
+        mPrefetchedItems.clear();
+        mPrefetchedItemTypes.clear();
+        mItemViewPool.clear();
+        mAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(mAdapterObserver);
+        }
+        resetItemExtents();
+        requestLayout();
+        invalidate();
+    }
 
-                initOrResetVelocityTracker();
-                mVelocityTracker.addMovement(ev);
-                /*
-                 * If being flinged and user touches the screen, initiate drag;
-                 * otherwise don't. mScroller.isFinished should be false when
-                 * being flinged. We need to call computeScrollOffset() first so that
-                 * isFinished() is correct.
-                 */
-                mScroller.computeScrollOffset();
-                mIsBeingDragged = !mScroller.isFinished();
-                startNestedScroll(horizontal ? ViewCompat.SCROLL_AXIS_HORIZONTAL : ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
-                break;
-            }
+    @Nullable
+    public Adapter getAdapter() {
+        return mAdapter;
+    }
 
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP:
-                /* Release the drag */
-                mIsBeingDragged = false;
-                mActivePointerId = INVALID_POINTER;
-                recycleVelocityTracker();
-                int maxX = 0;
-                int maxY = 0;
-                if (getOrientation() == HORIZONTAL) {
-                    maxX = getScrollRange();
-                } else {
-                    maxY = getScrollRange();
-                }
-                if (mScroller.springBack(getScrollX(), getScrollY(), 0, maxX, 0, maxY)) {
-                    ViewCompat.postInvalidateOnAnimation(this);
-                }
-                stopNestedScroll(ViewCompat.TYPE_TOUCH);
-                break;
-            case MotionEvent.ACTION_POINTER_UP:
-                onSecondaryPointerUp(ev);
-                break;
+    /**
+     * 设置虚拟化模式下视口前后额外保留条目的区域长度
+     *
+     * @param margin 区域长度，小于0时取视口长度的一半
+     */
+    public void setVirtualWindowMargin(int margin) {
+        if (mVirtualWindowMargin != margin) {
+            mVirtualWindowMargin = margin;
+            if (mAdapter != null) {
+                requestLayout();
+            }
         }
+    }
 
-        /*
-         * The only time we want to intercept motion events is if we are in the
-         * drag mode.
-         */
-        return mIsBeingDragged;
+    public int getVirtualWindowMargin() {
+        return mVirtualWindowMargin;
     }
 
-    @SuppressLint("ClickableViewAccessibility")
-    @Override
-    public boolean onTouchEvent(@NonNull MotionEvent ev) {
-        if (!mScrollable) {
-            return super.onTouchEvent(ev);
+    /**
+     * 设置虚拟化模式下尚未测量条目在滚动方向上的预估长度（含外边距），用于计算滚动范围
+     *
+     * @param extent 预估长度，为0时以首个测量条目的长度作为预估长度
+     */
+    public void setEstimatedItemExtent(int extent) {
+        mEstimatedItemExtent = Math.max(0, extent);
+        if (mEstimatedItemExtent > 0) {
+            mItemExtentEstimate = mEstimatedItemExtent;
+            mItemExtents.reestimate(mItemExtentEstimate);
+            if (mAdapter != null) {
+                requestLayout();
+            }
         }
-        initVelocityTrackerIfNotExists();
+    }
 
-        MotionEvent vtev = MotionEvent.obtain(ev);
+    private void resetItemExtents() {
+        if (mEstimatedItemExtent > 0) {
+            mItemExtentEstimate = mEstimatedItemExtent;
+        }
+        mItemExtents.reset(mAdapter != null ? mAdapter.getItemCount() : 0, mItemExtentEstimate);
+    }
 
-        final int actionMasked = ev.getActionMasked();
-        final boolean horizontal = getOrientation() == HORIZONTAL;
+    private void onAdapterDataSetChanged() {
+        stopFlingPrefetch();
+        for (int i = mAttachedItems.size() - 1; i >= 0; i--) {
+            recycleItemView(i);
+        }
+        resetItemExtents();
+        requestLayout();
+    }
 
-        if (actionMasked == MotionEvent.ACTION_DOWN) {
-            mNestedXOffset = 0;
-            mNestedYOffset = 0;
+    /**
+     * @return Returns true this ScrollView can be scrolled
+     */
+    private boolean canScroll() {
+        if (mScrollable && getChildCount() > 0) {
+            if (getOrientation() == HORIZONTAL) {
+                return getWidth() - getPaddingLeft() - getPaddingRight() < getChildContentWidth();
+            } else {
+                return getHeight() - getPaddingTop() - getPaddingBottom() < getChildContentHeight();
+            }
         }
-        vtev.offsetLocation(mNestedXOffset, mNestedYOffset);
+        return false;
+    }
 
-        switch (actionMasked) {
-            case MotionEvent.ACTION_DOWN: {
-                if (getChildCount() == 0) {
-                    return false;
-                }
-                if ((mIsBeingDragged = !mScroller.isFinished())) {
-                    final ViewParent parent = getParent();
-                    if (parent != null) {
-                        parent.requestDisallowInterceptTouchEvent(true);
-                    }
-                }
+    public boolean isScrollable() {
+        return mScrollable;
+    }
+
+    public void setScrollable(boolean scrollable) {
+        if (this.mScrollable != scrollable) {
+            this.mScrollable = scrollable;
+            mContentExtentValid = false;
+            if (this.mScrollable) {
+                initOrResetVelocityTracker();
+            } else {
+                recycleVelocityTracker();
+            }
+            if (getChildCount() > 0) {
+                // TODO 滚动到起点
+                requestLayout();
+            }
+        }
+    }
+
+    public boolean isLayoutBoundaryEnabled() {
+        return mLayoutBoundaryEnabled;
+    }
+
+    /**
+     * 设置是否启用布局边界模式。启用后，可滚动且宽高均为固定尺寸（测量模式均为{@link MeasureSpec#EXACTLY}）时，
+     * 子视图的布局请求不再传递给上层视图，而是在下一帧只对本容器重新测量及布局
+     *
+     * @param enabled 是否启用
+     */
+    public void setLayoutBoundaryEnabled(boolean enabled) {
+        mLayoutBoundaryEnabled = enabled;
+        if (!enabled && mBoundaryLayoutPending) {
+            mBoundaryLayoutPending = false;
+            removeCallbacks(mBoundaryLayoutRunnable);
+            super.requestLayout();
+        }
+    }
+
+    public boolean isScrollAnchoringEnabled() {
+        return mScrollAnchoringEnabled;
+    }
+
+    /**
+     * 设置是否启用滚动锚定。启用后每次布局前记录视口起始处第一个可见的子视图及其偏移，
+     * 在同一次布局中修正滚动位置，使视口之前插入或移除子视图时视口内的内容保持不动，默认关闭。
+     * 关闭时 {@link #beginBatchUpdate()} 与 {@link #endBatchUpdate()} 之间的更新仍保持视口起始处的子视图位置不变
+     *
+     * @param enabled 是否启用
+     */
+    public void setScrollAnchoringEnabled(boolean enabled) {
+        mScrollAnchoringEnabled = enabled;
+    }
+
+    /**
+     * 在末尾添加延迟创建的子视图占位
+     *
+     * @see #addLazySlot(int, int, LazySlotFactory)
+     */
+    public void addLazySlot(int estimatedExtent, @NonNull LazySlotFactory factory) {
+        addLazySlot(-1, estimatedExtent, factory);
+    }
+
+    /**
+     * 添加延迟创建的子视图占位。占位在滚动方向上按预估长度占用空间，进入视口及其前后扩展区域时才通过工厂创建实际的子视图并替换，
+     * 实际长度与预估长度的差异由滚动锚定修正，视口内的内容保持不动。适配器模式下不可用
+     *
+     * @param index           添加位置，小于0时添加到末尾
+     * @param estimatedExtent 滚动方向上的预估长度
+     * @param factory         子视图工厂
+     */
+    public void addLazySlot(int index, int estimatedExtent, @NonNull LazySlotFactory factory) {
+        if (mAdapter != null) {
+            throw new IllegalStateException("Lazy slots are not supported while an adapter is set.");
+        }
+        addView(new LazySlotView(getContext(), estimatedExtent, factory), index);
+    }
+
+    /**
+     * 设置视口前后提前创建占位子视图的区域长度
+     *
+     * @param margin 区域长度，小于0时取视口长度的一半
+     */
+    public void setLazySlotMargin(int margin) {
+        mLazySlotMargin = margin;
+        scheduleLazySlotInflate();
+    }
+
+    public int getLazySlotMargin() {
+        return mLazySlotMargin;
+    }
+
+    private void scheduleLazySlotInflate() {
+        if (mLazySlotCount > 0 && mAdapter == null && !mLazySlotInflateScheduled) {
+            mLazySlotInflateScheduled = true;
+            post(mLazySlotInflateRunnable);
+        }
+    }
+
+    /**
+     * 将视口及其前后扩展区域内的占位替换为实际子视图，替换在一次批量更新中完成，只触发一次布局
+     */
+    private void inflateLazySlotsNearViewport() {
+        if (mLazySlotCount <= 0 || mAdapter != null || isLayoutRequested()) {
+            return;
+        }
+        final int count = getOffsetIndexCount();
+        if (count == 0 || count != getChildCount()) {
+            return;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int viewportLength = getViewportLength();
+        final int margin = mLazySlotMargin >= 0 ? mLazySlotMargin : viewportLength / 2;
+        final int visibleStart = horizontal ? getScrollX() + getPaddingLeft() : getScrollY() + getPaddingTop();
+        final int windowStart = visibleStart - margin;
+        final int windowEnd = visibleStart + viewportLength + margin;
+
+        boolean batching = false;
+        for (int i = Math.max(0, findOffsetIndex(windowStart)); i < count && getOffsetIndexStart(i) < windowEnd; i++) {
+            final View child = getChildAt(i);
+            if (!(child instanceof LazySlotView) || child.getVisibility() == GONE) {
+                continue;
+            }
+            if (!batching) {
+                batching = true;
+                beginBatchUpdate();
+            }
+            final View view = ((LazySlotView) child).getFactory().onCreateView(this);
+            final ViewGroup.LayoutParams lp = view.getLayoutParams() != null
+                    ? view.getLayoutParams() : child.getLayoutParams();
+            removeViewAt(i);
+            addView(view, i, lp);
+        }
+        if (batching) {
+            // 批量更新开始时记录的锚点可能正是被替换的占位，按替换后的子视图重新记录
+            captureScrollAnchor();
+            endBatchUpdate();
+        }
+    }
+
+    /**
+     * 开始批量更新，需与{@link #endBatchUpdate()}成对调用，允许嵌套。
+     * 批量更新期间增删子视图等引起的布局请求、{@link #scrollTo(int, int)}的滚动位置修正以及
+     * {@link OnScrollChangeListener}的回调都会被推迟，结束时只执行一次布局，并保持视口起始处的子视图位置不变
+     */
+    public void beginBatchUpdate() {
+        if (mBatchDepth++ == 0 && !mBatchFinishing) {
+            captureScrollAnchor();
+        }
+    }
+
+    /**
+     * 结束批量更新，最外层结束时统一处理期间推迟的布局、滚动及回调
+     */
+    public void endBatchUpdate() {
+        if (mBatchDepth <= 0) {
+            throw new IllegalStateException("endBatchUpdate() called without matching beginBatchUpdate()");
+        }
+        if (--mBatchDepth > 0) {
+            return;
+        }
+        final boolean layoutRequested = mBatchLayoutRequested;
+        mBatchLayoutRequested = false;
+        if (layoutRequested && isLayoutExpected()) {
+            // 等待布局完成后再恢复滚动位置并回调
+            mBatchFinishing = true;
+            requestLayout();
+        } else {
+            if (layoutRequested) {
+                // 脱离窗口或不可见时不会随即布局，仍需补上请求，期间推迟的处理立即完成
+                requestLayout();
+            }
+            mScrollAnchorChild = null;
+            if (mBatchScrollPending) {
+                mBatchScrollPending = false;
+                clampScrollTo(getScrollX(), getScrollY());
+            }
+            finishBatchUpdate();
+        }
+    }
+
+    /**
+     * @return 请求布局后是否会随即执行布局，脱离窗口或自身及上层视图为 GONE 时不会
+     */
+    private boolean isLayoutExpected() {
+        if (!ViewCompat.isAttachedToWindow(this)) {
+            return false;
+        }
+        View view = this;
+        while (true) {
+            if (view.getVisibility() == GONE) {
+                return false;
+            }
+            final ViewParent parent = view.getParent();
+            if (!(parent instanceof View)) {
+                return true;
+            }
+            view = (View) parent;
+        }
+    }
+
+    /**
+     * @return 是否处于批量更新期间
+     */
+    public boolean isInBatchUpdate() {
+        return mBatchDepth > 0;
+    }
+
+    private void finishBatchUpdate() {
+        mBatchFinishing = false;
+        mBatchScrollPending = false;
+        mScrollAnchorChild = null;
+        if (mBatchScrollChanged) {
+            mBatchScrollChanged = false;
+            final int scrollX = getScrollX();
+            final int scrollY = getScrollY();
+            if (mOnScrollChangeListener != null && (scrollX != mBatchOldScrollX || scrollY != mBatchOldScrollY)) {
+                mOnScrollChangeListener.onScrollChange(this, scrollX, scrollY, mBatchOldScrollX, mBatchOldScrollY);
+            }
+        }
+    }
+
+    /**
+     * 记录视口起始处第一个可见子视图及其相对于滚动位置的偏移，使用上次布局或布局前按当前位置重建的位置索引
+     */
+    private void captureScrollAnchor() {
+        mScrollAnchorChild = null;
+        final boolean fromLayout = mChildOffsetsFromLayout;
+        final int count = fromLayout ? mLaidOutChildCount : getChildCount();
+        if (!mScrollable || mAdapter != null || count <= 0 || mChildOffsets.getCount() != count) {
+            return;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int scroll = horizontal ? getScrollX() : getScrollY();
+        final int viewportStart = scroll + (horizontal ? getPaddingLeft() : getPaddingTop());
+        int index = mChildOffsets.indexAtOffset(viewportStart);
+        for (; index < count; index++) {
+            if (mChildOffsets.getExtent(index) == 0 || mChildOffsets.getEnd(index) <= viewportStart) {
+                continue;
+            }
+            final View child = fromLayout ? mLaidOutChildren[index] : getChildAt(index);
+            // 已被移除的子视图无法作为锚点；调整顺序后重建的索引可能被修正过，位置与子视图不一致的同样跳过
+            if (child.getParent() == this && getChildLeadingEdge(child, horizontal) == mChildOffsets.getStart(index)) {
+                mScrollAnchorChild = child;
+                mScrollAnchorOffset = mChildOffsets.getStart(index) - scroll;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 子视图在滚动方向上的起始位置（含外边距）
+     */
+    private int getChildLeadingEdge(View child, boolean horizontal) {
+        final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        return horizontal ? child.getLeft() - lp.leftMargin : child.getTop() - lp.topMargin;
+    }
+
+    /**
+     * 根据记录的滚动锚点计算布局后的滚动位置，锚点子视图已被移除或隐藏时失效
+     *
+     * @return 滚动方向上的滚动位置，锚点失效时返回{@link Integer#MIN_VALUE}
+     */
+    private int consumeScrollAnchor() {
+        final View anchor = mScrollAnchorChild;
+        mScrollAnchorChild = null;
+        if (anchor == null || anchor.getParent() != this || anchor.getVisibility() == GONE) {
+            return Integer.MIN_VALUE;
+        }
+        final MarginLayoutParams lp = (MarginLayoutParams) anchor.getLayoutParams();
+        final int start = getOrientation() == HORIZONTAL
+                ? anchor.getLeft() - lp.leftMargin : anchor.getTop() - lp.topMargin;
+        return start - mScrollAnchorOffset;
+    }
+
+    /**
+     * @return Whether arrow scrolling will animate its transition.
+     */
+    public boolean isSmoothScrollingEnabled() {
+        return mSmoothScrollingEnabled;
+    }
+
+    /**
+     * Set whether arrow scrolling will animate its transition.
+     *
+     * @param smoothScrollingEnabled whether arrow scrolling will animate its transition
+     */
+    public void setSmoothScrollingEnabled(boolean smoothScrollingEnabled) {
+        mSmoothScrollingEnabled = smoothScrollingEnabled;
+    }
+
+    /**
+     * 设置是否合并处理方向键的重复按键。开启后按住方向键时每帧最多移动一次焦点，
+     * 期间累积的按键一次性移动相应数量的焦点，并让滚动位置领先焦点若干个子视图，
+     * 平滑滚动时持续修改同一个滚动动画的目标位置
+     *
+     * @param enabled 是否开启，默认关闭
+     */
+    public void setKeyRepeatScrollEnabled(boolean enabled) {
+        mKeyRepeatScrollEnabled = enabled;
+        if (!enabled) {
+            mPendingKeyRepeatCount = 0;
+        }
+    }
+
+    public boolean isKeyRepeatScrollEnabled() {
+        return mKeyRepeatScrollEnabled;
+    }
+
+    /**
+     * 设置平滑滚动的重定向模式。开启后 smoothScrollBy/smoothScrollTo 在已有动画进行时
+     * 只修改该动画的目标位置并保持当前速度，不再受 {@link #ANIMATED_SCROLL_GAP} 限制而直接跳到目标位置，
+     * 适用于跟随播放进度、日志自动滚动等高频调用的场景
+     *
+     * @param enabled 是否开启，默认关闭
+     */
+    public void setSmoothScrollRetargetEnabled(boolean enabled) {
+        mSmoothScrollRetargetEnabled = enabled;
+    }
+
+    public boolean isSmoothScrollRetargetEnabled() {
+        return mSmoothScrollRetargetEnabled;
+    }
+
+    /**
+     * 设置吸附模式。开启后抬手时按滑动速度直接计算出落点所在的吸附位置并滚动到该位置，
+     * 惯性滑动结束时恰好与子视图对齐，不需要再做二次修正
+     *
+     * @param alignment 对齐方式，{@link #SNAP_NONE}、{@link #SNAP_START}、{@link #SNAP_CENTER}或{@link #SNAP_END}
+     * @param paging    是否每次惯性滑动只移动一个子视图，否则按惯性滑动的预测落点吸附到最近的子视图
+     */
+    public void setSnapMode(int alignment, boolean paging) {
+        if (alignment < SNAP_NONE || alignment > SNAP_END) {
+            throw new IllegalArgumentException("Invalid snap alignment: " + alignment);
+        }
+        mSnapAlignment = alignment;
+        mSnapPagingEnabled = paging;
+    }
+
+    public int getSnapAlignment() {
+        return mSnapAlignment;
+    }
+
+    public boolean isSnapPagingEnabled() {
+        return mSnapPagingEnabled;
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+
+        if (mAdapter != null && !isLayoutRequested()) {
+            fillVirtualWindow(getViewportLength(), false);
+        }
+        if (mDroppedChildInvalidation) {
+            mDroppedChildInvalidation = false;
+            invalidate();
+        }
+        scheduleLazySlotInflate();
+        scheduleFrameScroll(oldl, oldt);
+        if (mBatchDepth == 0) {
+            updateVisibleRange();
+            updateViewability();
+            updateViewportAwareChildren();
+        }
+
+        if (mBatchDepth > 0 || mBatchFinishing) {
+            if (!mBatchScrollChanged) {
+                mBatchScrollChanged = true;
+                mBatchOldScrollX = oldl;
+                mBatchOldScrollY = oldt;
+            }
+        } else if (mOnScrollChangeListener != null) {
+            mOnScrollChangeListener.onScrollChange(this, l, t, oldl, oldt);
+        }
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        // Let the focused view and/or our descendants get the key first
+        return super.dispatchKeyEvent(event) || (mScrollable && executeKeyEvent(event));
+    }
+
+    /**
+     * You can call this function yourself to have the scroll view perform
+     * scrolling from a key event, just as if the event had been dispatched to
+     * it by the view hierarchy.
+     *
+     * @param event The key event to execute.
+     * @return Return true if the event was handled, else false.
+     */
+    public boolean executeKeyEvent(@NonNull KeyEvent event) {
+        mTempRect.setEmpty();
+
+        if (!canScroll()) {
+            if (isFocused() && event.getKeyCode() != KeyEvent.KEYCODE_BACK) {
+                View currentFocused = findFocus();
+                if (currentFocused == this) currentFocused = null;
+                final int direction = getOrientation() == HORIZONTAL ? View.FOCUS_RIGHT : View.FOCUS_DOWN;
+                View nextFocused = FocusFinder.getInstance().findNextFocus(this,
+                        currentFocused, direction);
+                return nextFocused != null
+                        && nextFocused != this
+                        && nextFocused.requestFocus(direction);
+            }
+            return false;
+        }
+
+        boolean handled = false;
+        if (event.getAction() == KeyEvent.ACTION_DOWN) {
+            if (mKeyRepeatScrollEnabled && event.getRepeatCount() > 0 && !event.isAltPressed()) {
+                final int direction = getKeyRepeatDirection(event.getKeyCode());
+                if (direction != 0) {
+                    return queueKeyRepeat(direction);
+                }
+            }
+            switch (event.getKeyCode()) {
+                case KeyEvent.KEYCODE_DPAD_LEFT:
+                    if (!event.isAltPressed()) {
+                        handled = arrowScroll(View.FOCUS_LEFT);
+                    } else {
+                        handled = fullScroll(View.FOCUS_LEFT);
+                    }
+                    break;
+                case KeyEvent.KEYCODE_DPAD_RIGHT:
+                    if (!event.isAltPressed()) {
+                        handled = arrowScroll(View.FOCUS_RIGHT);
+                    } else {
+                        handled = fullScroll(View.FOCUS_RIGHT);
+                    }
+                    break;
+                case KeyEvent.KEYCODE_DPAD_UP:
+                    if (!event.isAltPressed()) {
+                        handled = arrowScroll(View.FOCUS_UP);
+                    } else {
+                        handled = fullScroll(View.FOCUS_UP);
+                    }
+                    break;
+                case KeyEvent.KEYCODE_DPAD_DOWN:
+                    if (!event.isAltPressed()) {
+                        handled = arrowScroll(View.FOCUS_DOWN);
+                    } else {
+                        handled = fullScroll(View.FOCUS_DOWN);
+                    }
+                    break;
+                case KeyEvent.KEYCODE_SPACE:
+                    if (getOrientation() == HORIZONTAL) {
+                        pageScroll(event.isShiftPressed() ? View.FOCUS_LEFT : View.FOCUS_RIGHT);
+                    } else {
+                        pageScroll(event.isShiftPressed() ? View.FOCUS_UP : View.FOCUS_DOWN);
+                    }
+                    break;
+            }
+        }
+
+        return handled;
+    }
+
+    /**
+     * @return 方向键对应的滚动方向上的焦点方向，与滚动方向不一致时返回0
+     */
+    private int getKeyRepeatDirection(int keyCode) {
+        if (getOrientation() == HORIZONTAL) {
+            if (keyCode == KeyEvent.KEYCODE_DPAD_LEFT) {
+                return View.FOCUS_LEFT;
+            } else if (keyCode == KeyEvent.KEYCODE_DPAD_RIGHT) {
+                return View.FOCUS_RIGHT;
+            }
+        } else {
+            if (keyCode == KeyEvent.KEYCODE_DPAD_UP) {
+                return View.FOCUS_UP;
+            } else if (keyCode == KeyEvent.KEYCODE_DPAD_DOWN) {
+                return View.FOCUS_DOWN;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 将重复按键累积到下一帧处理
+     *
+     * @return 没有待处理的同向按键且该方向上既无法移动焦点也无法继续滚动时返回false，由上层将焦点移出本容器
+     */
+    private boolean queueKeyRepeat(int direction) {
+        if ((mPendingKeyRepeatCount == 0 || direction != mPendingKeyRepeatDirection)
+                && !canKeyRepeatAdvance(direction)) {
+            return false;
+        }
+        if (direction != mPendingKeyRepeatDirection) {
+            mPendingKeyRepeatCount = 0;
+        }
+        mPendingKeyRepeatDirection = direction;
+        mPendingKeyRepeatCount++;
+        if (!mKeyRepeatScheduled) {
+            mKeyRepeatScheduled = true;
+            ViewCompat.postOnAnimation(this, mKeyRepeatRunnable);
+        }
+        return true;
+    }
+
+    /**
+     * 与 {@link #arrowScroll(int)} 的判断一致：范围内有可获取焦点的子视图，或者该方向上还能继续滚动。
+     * 进行中的动画按其终点判断
+     */
+    private boolean canKeyRepeatAdvance(int direction) {
+        if (!mScrollable || getChildCount() == 0) {
+            return false;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int maxJump = getMaxScrollAmount();
+        View currentFocused = findFocus();
+        if (currentFocused == this) {
+            currentFocused = null;
+        }
+        final int screenStart = horizontal ? getScrollX() : getScrollY();
+        final int screenEnd = screenStart + (horizontal ? getWidth() : getHeight());
+        final View nextFocused = findNextFocusInWindow(currentFocused, null, direction,
+                screenStart - maxJump, screenEnd + maxJump + 1);
+        if (nextFocused != null && isWithinDeltaOfScreen(nextFocused, maxJump, getHeight(), getWidth())) {
+            return true;
+        }
+        int scroll = screenStart;
+        if (!mScroller.isFinished()) {
+            scroll = horizontal ? mScroller.getFinalX() : mScroller.getFinalY();
+        }
+        final boolean forward = direction == View.FOCUS_RIGHT || direction == View.FOCUS_DOWN;
+        return forward ? scroll < getScrollRange() : scroll > 0;
+    }
+
+    /**
+     * 处理一帧内累积的重复按键：焦点一次移动累积的步数，滚动目标领先焦点 {@link #KEY_REPEAT_LOOKAHEAD} 个子视图
+     */
+    private void performKeyRepeatScroll() {
+        final int count = mPendingKeyRepeatCount;
+        final int direction = mPendingKeyRepeatDirection;
+        mPendingKeyRepeatCount = 0;
+        if (count == 0 || !mScrollable || getChildCount() == 0) {
+            return;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final boolean forward = direction == View.FOCUS_RIGHT || direction == View.FOCUS_DOWN;
+        final int maxJump = getMaxScrollAmount();
+        final int scroll = horizontal ? getScrollX() : getScrollY();
+        final int range = getScrollRange();
+
+        View currentFocused = findFocus();
+        if (currentFocused == this) {
+            currentFocused = null;
+        }
+        View nextFocused = currentFocused;
+        for (int i = 0; i < count && nextFocused != null; i++) {
+            nextFocused.getDrawingRect(mTempRect);
+            offsetDescendantRectToMyCoords(nextFocused, mTempRect);
+            final int start = horizontal ? mTempRect.left : mTempRect.top;
+            final int end = horizontal ? mTempRect.right : mTempRect.bottom;
+            final View candidate = findNextFocusInWindow(nextFocused, null, direction,
+                    start - maxJump, end + maxJump + 1);
+            if (candidate == null) {
+                break;
+            }
+            nextFocused = candidate;
+        }
+
+        int target;
+        if (nextFocused != null && nextFocused != currentFocused) {
+            nextFocused.getDrawingRect(mTempRect);
+            offsetDescendantRectToMyCoords(nextFocused, mTempRect);
+            extendRectByLookahead(nextFocused, mTempRect, forward);
+            target = scroll + computeScrollDeltaToGetChildRectOnScreen(mTempRect);
+        } else {
+            // 没有可获取焦点的子视图时与 arrowScroll 一致，每次按键滚动 maxJump
+            target = scroll + (forward ? count * maxJump : -count * maxJump);
+        }
+        if (!mScroller.isFinished()) {
+            // 不回退进行中动画已经领先的部分
+            final int animatedTarget = horizontal ? mScroller.getFinalX() : mScroller.getFinalY();
+            target = forward ? Math.max(target, animatedTarget) : Math.min(target, animatedTarget);
+        }
+        target = Math.max(0, Math.min(target, range));
+
+        if (target != scroll) {
+            if (mSmoothScrollingEnabled) {
+                retargetAnimatedScroll(target, DEFAULT_SMOOTH_SCROLL_DURATION, false);
+            } else if (horizontal) {
+                scrollTo(target, getScrollY());
+            } else {
+                scrollTo(getScrollX(), target);
+            }
+        }
+        if (nextFocused != null && nextFocused != currentFocused) {
+            mSuppressFocusScroll = true;
+            try {
+                nextFocused.requestFocus(direction);
+            } finally {
+                mSuppressFocusScroll = false;
+            }
+        }
+    }
+
+    /**
+     * 将焦点视图的区域沿滚动方向延伸到其后若干个子视图，延伸后的长度不超过视口长度
+     */
+    private void extendRectByLookahead(View focused, Rect rect, boolean forward) {
+        View child = focused;
+        while (child.getParent() != this) {
+            final ViewParent parent = child.getParent();
+            if (!(parent instanceof View)) {
+                return;
+            }
+            child = (View) parent;
+        }
+        final int index;
+        if (mAdapter != null) {
+            final int attached = mAttachedItems.indexOfValue(child);
+            if (attached < 0) {
+                return;
+            }
+            index = mAttachedItems.keyAt(attached);
+        } else {
+            index = indexOfChild(child);
+        }
+        final int count = getOffsetIndexCount();
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int viewportLength = getViewportLength();
+        if (forward) {
+            final int start = horizontal ? rect.left : rect.top;
+            final int lookahead = Math.min(index + KEY_REPEAT_LOOKAHEAD, count - 1);
+            final int end = Math.min(Math.max(getOffsetIndexEnd(lookahead), horizontal ? rect.right : rect.bottom),
+                    start + viewportLength);
+            if (horizontal) {
+                rect.right = Math.max(rect.right, end);
+            } else {
+                rect.bottom = Math.max(rect.bottom, end);
+            }
+        } else {
+            final int end = horizontal ? rect.right : rect.bottom;
+            final int lookahead = Math.max(index - KEY_REPEAT_LOOKAHEAD, 0);
+            final int start = Math.max(Math.min(getOffsetIndexStart(lookahead), horizontal ? rect.left : rect.top),
+                    end - viewportLength);
+            if (horizontal) {
+                rect.left = Math.min(rect.left, start);
+            } else {
+                rect.top = Math.min(rect.top, start);
+            }
+        }
+    }
+
+    private boolean inChild(int x, int y) {
+        if (mScrollable && getChildCount() > 0) {
+            int contentStart = getChildContentStart();
+            int contentEnd = getChildContentEnd();
+            if (mAdapter == null) {
+                // 与子视图边界一致，不含首尾子视图的外边距
+                final MarginLayoutParams firstLp = (MarginLayoutParams) getChildAt(0).getLayoutParams();
+                final MarginLayoutParams lastLp = (MarginLayoutParams) getChildAt(getChildCount() - 1).getLayoutParams();
+                if (getOrientation() == HORIZONTAL) {
+                    contentStart += firstLp.leftMargin;
+                    contentEnd -= lastLp.rightMargin;
+                } else {
+                    contentStart += firstLp.topMargin;
+                    contentEnd -= lastLp.bottomMargin;
+                }
+            }
+            if (getOrientation() == HORIZONTAL) {
+                final int scrollX = getScrollX();
+                return !(y < getPaddingTop()
+                        || y >= getHeight() - getPaddingBottom()
+                        || x < contentStart - scrollX
+                        || x >= contentEnd - scrollX);
+            } else {
+                final int scrollY = getScrollY();
+                return !(y < contentStart - scrollY
+                        || y >= contentEnd - scrollY
+                        || x < getPaddingLeft()
+                        || x >= getWidth() - getPaddingRight());
+            }
+        }
+        return false;
+    }
+
+    private void initOrResetVelocityTracker() {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        } else {
+            mVelocityTracker.clear();
+        }
+    }
+
+    private void initVelocityTrackerIfNotExists() {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    @Override
+    public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        if (mScrollable && disallowIntercept) {
+            recycleVelocityTracker();
+        }
+        super.requestDisallowInterceptTouchEvent(disallowIntercept);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (!mScrollable) {
+            return super.onInterceptTouchEvent(ev);
+        }
+        /*
+         * This method JUST determines whether we want to intercept the motion.
+         * If we return true, onMotionEvent will be called and we do the actual
+         * scrolling there.
+         */
+
+        /*
+         * Shortcut the most recurring case: the user is in the dragging
+         * state and he is moving his finger.  We want to intercept this
+         * motion.
+         */
+        final int action = ev.getAction();
+        if ((action == MotionEvent.ACTION_MOVE) && (mIsBeingDragged)) {
+            return true;
+        }
+
+        // TODO
+        if (getOrientation() == HORIZONTAL && super.onInterceptTouchEvent(ev)) {
+            return true;
+        }
+
+        switch (action & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_MOVE: {
+                /*
+                 * mIsBeingDragged == false, otherwise the shortcut would have caught it. Check
+                 * whether the user has moved far enough from his original down touch.
+                 */
+
+                /*
+                 * Locally do absolute value. mLastMotionY is set to the y value
+                 * of the down event.
+                 */
+                final int activePointerId = mActivePointerId;
+                if (activePointerId == INVALID_POINTER) {
+                    // If we don't have a valid id, the touch down wasn't on content.
+                    break;
+                }
+
+                final int pointerIndex = ev.findPointerIndex(activePointerId);
+                if (pointerIndex == -1) {
+                    Log.e(TAG, "Invalid pointerId=" + activePointerId
+                            + " in onInterceptTouchEvent");
+                    break;
+                }
+
+                if (getOrientation() == HORIZONTAL) {
+                    final int x = (int) ev.getX(pointerIndex);
+                    final int xDiff = Math.abs(x - mLastMotionX);
+                    if (xDiff > mTouchSlop
+                            && (getNestedScrollAxes() & ViewCompat.SCROLL_AXIS_HORIZONTAL) == 0) {
+                        mIsBeingDragged = true;
+                        mPendingScrollIndex = -1;
+                        mLastMotionX = x;
+                        initVelocityTrackerIfNotExists();
+                        mVelocityTracker.addMovement(ev);
+                        mNestedXOffset = 0;
+                        final ViewParent parent = getParent();
+                        if (parent != null) {
+                            parent.requestDisallowInterceptTouchEvent(true);
+                        }
+                    }
+                } else {
+                    final int y = (int) ev.getY(pointerIndex);
+                    final int yDiff = Math.abs(y - mLastMotionY);
+                    if (yDiff > mTouchSlop
+                            && (getNestedScrollAxes() & ViewCompat.SCROLL_AXIS_VERTICAL) == 0) {
+                        mIsBeingDragged = true;
+                        mPendingScrollIndex = -1;
+                        mLastMotionY = y;
+                        initVelocityTrackerIfNotExists();
+                        mVelocityTracker.addMovement(ev);
+                        mNestedYOffset = 0;
+                        final ViewParent parent = getParent();
+                        if (parent != null) {
+                            parent.requestDisallowInterceptTouchEvent(true);
+                        }
+                    }
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_DOWN: {
+                final int x = (int) ev.getX();
+                final int y = (int) ev.getY();
+                if (!inChild(x, y)) {
+                    mIsBeingDragged = false;
+                    recycleVelocityTracker();
+                    break;
+                }
+
+                /*
+                 * Remember location of down touch.
+                 * ACTION_DOWN always refers to pointer index 0.
+                 */
+                boolean horizontal = getOrientation() == HORIZONTAL;
+                if (horizontal) {
+                    mLastMotionX = x;
+                } else {
+                    mLastMotionY = y;
+                }
+                mActivePointerId = ev.getPointerId(0);
+
+                initOrResetVelocityTracker();
+                mVelocityTracker.addMovement(ev);
+                /*
+                 * If being flinged and user touches the screen, initiate drag;
+                 * otherwise don't. mScroller.isFinished should be false when
+                 * being flinged. We need to call computeScrollOffset() first so that
+                 * isFinished() is correct.
+                 */
+                mScroller.computeScrollOffset();
+                mIsBeingDragged = !mScroller.isFinished();
+                if (!mIsBeingDragged) {
+                    // 滚动已在此处结束，computeScroll 不会再处理
+                    dispatchScrollSettled();
+                }
+                startNestedScroll(horizontal ? ViewCompat.SCROLL_AXIS_HORIZONTAL : ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+                break;
+            }
+
+            case MotionEvent.ACTION_CANCEL:
+            case MotionEvent.ACTION_UP:
+                /* Release the drag */
+                mIsBeingDragged = false;
+                mActivePointerId = INVALID_POINTER;
+                recycleVelocityTracker();
+                int maxX = 0;
+                int maxY = 0;
+                if (getOrientation() == HORIZONTAL) {
+                    maxX = getScrollRange();
+                } else {
+                    maxY = getScrollRange();
+                }
+                if (mScroller.springBack(getScrollX(), getScrollY(), 0, maxX, 0, maxY)) {
+                    ViewCompat.postInvalidateOnAnimation(this);
+                }
+                stopNestedScroll(ViewCompat.TYPE_TOUCH);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+        }
+
+        updateScrollState();
+        /*
+         * The only time we want to intercept motion events is if we are in the
+         * drag mode.
+         */
+        return mIsBeingDragged;
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent ev) {
+        if (!mScrollable) {
+            return super.onTouchEvent(ev);
+        }
+        initVelocityTrackerIfNotExists();
+
+        MotionEvent vtev = MotionEvent.obtain(ev);
+
+        final int actionMasked = ev.getActionMasked();
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+
+        if (actionMasked == MotionEvent.ACTION_DOWN) {
+            mNestedXOffset = 0;
+            mNestedYOffset = 0;
+        }
+        vtev.offsetLocation(mNestedXOffset, mNestedYOffset);
+
+        switch (actionMasked) {
+            case MotionEvent.ACTION_DOWN: {
+                if (getChildCount() == 0) {
+                    return false;
+                }
+                if ((mIsBeingDragged = !mScroller.isFinished())) {
+                    final ViewParent parent = getParent();
+                    if (parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                }
 
                 /*
                  * If being flinged and user touches, stop the fling. isFinished
@@ -947,1065 +2645,2088 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
                  */
                 if (!mScroller.isFinished()) {
                     mScroller.abortAnimation();
+                    // 被打断的惯性滑动停在当前位置
+                    dispatchScrollSettled();
+                }
+
+                // Remember where the motion event started
+                if (horizontal) {
+                    mLastMotionX = (int) ev.getX();
+                } else {
+                    mLastMotionY = (int) ev.getY();
+                }
+                mActivePointerId = ev.getPointerId(0);
+                startNestedScroll(horizontal ? ViewCompat.SCROLL_AXIS_HORIZONTAL : ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+                break;
+            }
+            case MotionEvent.ACTION_MOVE:
+                final int activePointerIndex = ev.findPointerIndex(mActivePointerId);
+                if (activePointerIndex == -1) {
+                    Log.e(TAG, "Invalid pointerId=" + mActivePointerId + " in onTouchEvent");
+                    break;
+                }
+
+                final int x = (int) ev.getX(activePointerIndex);
+                final int y = (int) ev.getY(activePointerIndex);
+                int deltaX = 0, deltaY = 0;
+                if (horizontal) {
+                    deltaX = mLastMotionX - x;
+                } else {
+                    deltaY = mLastMotionY - y;
+                }
+                if (dispatchNestedPreScroll(deltaX, deltaY, mScrollConsumed, mScrollOffset, ViewCompat.TYPE_TOUCH)) {
+                    if (horizontal) {
+                        deltaX -= mScrollConsumed[0];
+                        vtev.offsetLocation(mScrollOffset[0], 0);
+                        mNestedXOffset += mScrollOffset[0];
+                    } else {
+                        deltaY -= mScrollConsumed[1];
+                        vtev.offsetLocation(0, mScrollOffset[1]);
+                        mNestedYOffset += mScrollOffset[1];
+                    }
+                }
+                if (!mIsBeingDragged && Math.abs(deltaX + deltaY) > mTouchSlop) {
+                    final ViewParent parent = getParent();
+                    if (parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                    mIsBeingDragged = true;
+                    mPendingScrollIndex = -1;
+                    if (horizontal) {
+                        if (deltaX > 0) {
+                            deltaX -= mTouchSlop;
+                        } else {
+                            deltaX += mTouchSlop;
+                        }
+                    } else {
+                        if (deltaY > 0) {
+                            deltaY -= mTouchSlop;
+                        } else {
+                            deltaY += mTouchSlop;
+                        }
+                    }
+                }
+                if (mIsBeingDragged) {
+                    if (horizontal) {
+                        // Scroll to follow the motion event
+                        mLastMotionX = x - mScrollOffset[0];
+
+                        final int oldX = getScrollX();
+                        final int range = getScrollRange();
+                        final int overscrollMode = getOverScrollMode();
+                        boolean canOverscroll = overscrollMode == View.OVER_SCROLL_ALWAYS
+                                || (overscrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && range > 0);
+
+                        // Calling overScrollByCompat will call onOverScrolled, which
+                        // calls onScrollChanged if applicable.
+                        if (overScrollByCompat(deltaX, 0, getScrollX(), 0, range, 0, 0,
+                                mOverscrollDistance, true) && !hasNestedScrollingParent(ViewCompat.TYPE_TOUCH)) {
+                            // Break our velocity if we hit a scroll barrier.
+                            mVelocityTracker.clear();
+                        }
+
+                        final int scrolledDeltaX = getScrollX() - oldX;
+                        final int unconsumedX = deltaX - scrolledDeltaX;
+                        if (dispatchNestedScroll(scrolledDeltaX, 0, unconsumedX, 0, mScrollOffset, ViewCompat.TYPE_TOUCH)) {
+                            mLastMotionX -= mScrollOffset[0];
+                            vtev.offsetLocation(mScrollOffset[0], 0);
+                            mNestedXOffset += mScrollOffset[0];
+                        } else if (canOverscroll) {
+                            ensureGlows();
+                            final int pulledToX = oldX + deltaX;
+                            if (pulledToX < 0) {
+                                EdgeEffectCompat.onPull(mEdgeGlowLeft, (float) deltaX / getWidth(),
+                                        1.f - ev.getY(activePointerIndex) / getHeight());
+                                if (!mEdgeGlowRight.isFinished()) {
+                                    mEdgeGlowRight.onRelease();
+                                }
+                            } else if (pulledToX > range) {
+                                EdgeEffectCompat.onPull(mEdgeGlowRight, (float) deltaX / getWidth(),
+                                        ev.getY(activePointerIndex) / getHeight());
+                                if (!mEdgeGlowLeft.isFinished()) {
+                                    mEdgeGlowLeft.onRelease();
+                                }
+                            }
+                            if (mEdgeGlowLeft != null
+                                    && (!mEdgeGlowLeft.isFinished() || !mEdgeGlowRight.isFinished())) {
+                                ViewCompat.postInvalidateOnAnimation(this);
+                            }
+                        }
+                    } else {
+                        // Scroll to follow the motion event
+                        mLastMotionY = y - mScrollOffset[1];
+
+                        final int oldY = getScrollY();
+                        final int range = getScrollRange();
+                        final int overscrollMode = getOverScrollMode();
+                        boolean canOverscroll = overscrollMode == View.OVER_SCROLL_ALWAYS
+                                || (overscrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && range > 0);
+
+                        // Calling overScrollByCompat will call onOverScrolled, which
+                        // calls onScrollChanged if applicable.
+                        if (overScrollByCompat(0, deltaY, 0, getScrollY(), 0, range, 0,
+                                0, true) && !hasNestedScrollingParent(ViewCompat.TYPE_TOUCH)) {
+                            // Break our velocity if we hit a scroll barrier.
+                            mVelocityTracker.clear();
+                        }
+
+                        final int scrolledDeltaY = getScrollY() - oldY;
+                        final int unconsumedY = deltaY - scrolledDeltaY;
+                        if (dispatchNestedScroll(0, scrolledDeltaY, 0, unconsumedY, mScrollOffset,
+                                ViewCompat.TYPE_TOUCH)) {
+                            mLastMotionY -= mScrollOffset[1];
+                            vtev.offsetLocation(0, mScrollOffset[1]);
+                            mNestedYOffset += mScrollOffset[1];
+                        } else if (canOverscroll) {
+                            ensureGlows();
+                            final int pulledToY = oldY + deltaY;
+                            if (pulledToY < 0) {
+                                EdgeEffectCompat.onPull(mEdgeGlowTop, (float) deltaY / getHeight(),
+                                        ev.getX(activePointerIndex) / getWidth());
+                                if (!mEdgeGlowBottom.isFinished()) {
+                                    mEdgeGlowBottom.onRelease();
+                                }
+                            } else if (pulledToY > range) {
+                                EdgeEffectCompat.onPull(mEdgeGlowBottom, (float) deltaY / getHeight(),
+                                        1.f - ev.getX(activePointerIndex) / getWidth());
+                                if (!mEdgeGlowTop.isFinished()) {
+                                    mEdgeGlowTop.onRelease();
+                                }
+                            }
+                            if (mEdgeGlowTop != null
+                                    && (!mEdgeGlowTop.isFinished() || !mEdgeGlowBottom.isFinished())) {
+                                ViewCompat.postInvalidateOnAnimation(this);
+                            }
+                        }
+                    }
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                final VelocityTracker velocityTracker = mVelocityTracker;
+                velocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+                if (horizontal) {
+                    int initialVelocity = (int) velocityTracker.getXVelocity(mActivePointerId);
+                    if ((Math.abs(initialVelocity) > mMinimumVelocity)) {
+                        if (!dispatchNestedPreFling(-initialVelocity, 0)) {
+                            dispatchNestedFling(-initialVelocity, 0, true);
+                            flingXWithNestedDispatch(-initialVelocity);
+                        } else if (startSnapScroll(0)) {
+                            // 上层视图消费了惯性滑动，本容器仍需吸附到最近的位置
+                            runAnimatedScroll(true);
+                        }
+                    } else if (startSnapScroll(0)) {
+                        runAnimatedScroll(true);
+                    } else if (mScroller.springBack(getScrollX(), getScrollY(), 0, getScrollRange(), 0, 0)) {
+                        ViewCompat.postInvalidateOnAnimation(this);
+                    }
+                } else {
+                    int initialVelocity = (int) velocityTracker.getYVelocity(mActivePointerId);
+                    if ((Math.abs(initialVelocity) > mMinimumVelocity)) {
+                        if (!dispatchNestedPreFling(0, -initialVelocity)) {
+                            dispatchNestedFling(0, -initialVelocity, true);
+                            flingYWithNestedDispatch(-initialVelocity);
+                        } else if (startSnapScroll(0)) {
+                            // 上层视图消费了惯性滑动，本容器仍需吸附到最近的位置
+                            runAnimatedScroll(true);
+                        }
+                    } else if (startSnapScroll(0)) {
+                        runAnimatedScroll(true);
+                    } else if (mScroller.springBack(getScrollX(), getScrollY(), 0, 0, 0, getScrollRange())) {
+                        ViewCompat.postInvalidateOnAnimation(this);
+                    }
+                }
+                mActivePointerId = INVALID_POINTER;
+                endDrag();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                if (mIsBeingDragged && getChildCount() > 0) {
+                    int maxX = 0, maxY = 0;
+                    if (horizontal) {
+                        maxX = getScrollRange();
+                    } else {
+                        maxY = getScrollRange();
+                    }
+                    if (mScroller.springBack(getScrollX(), getScrollY(), 0, maxX, 0, maxY)) {
+                        ViewCompat.postInvalidateOnAnimation(this);
+                    }
+                }
+                mActivePointerId = INVALID_POINTER;
+                endDrag();
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                final int index = ev.getActionIndex();
+                if (horizontal) {
+                    mLastMotionX = (int) ev.getX(index);
+                } else {
+                    mLastMotionY = (int) ev.getY(index);
+                }
+                mActivePointerId = ev.getPointerId(index);
+                break;
+            }
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                if (horizontal) {
+                    mLastMotionX = (int) ev.getX(ev.findPointerIndex(mActivePointerId));
+                } else {
+                    mLastMotionY = (int) ev.getY(ev.findPointerIndex(mActivePointerId));
+                }
+                break;
+        }
+
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(vtev);
+        }
+        vtev.recycle();
+        updateScrollState();
+        return true;
+    }
+
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        final int pointerIndex = ev.getActionIndex();
+        final int pointerId = ev.getPointerId(pointerIndex);
+        if (pointerId == mActivePointerId) {
+            // This was our active pointer going up. Choose a new
+            // active pointer and adjust accordingly.
+            // TODO: Make this decision more intelligent.
+            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            if (getOrientation() == HORIZONTAL) {
+                mLastMotionX = (int) ev.getX(newPointerIndex);
+            } else {
+                mLastMotionY = (int) ev.getY(newPointerIndex);
+            }
+            mActivePointerId = ev.getPointerId(newPointerIndex);
+            if (mVelocityTracker != null) {
+                mVelocityTracker.clear();
+            }
+        }
+    }
+
+    @Override
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        if (mScrollable && (event.getSource() & InputDeviceCompat.SOURCE_CLASS_POINTER) != 0
+                && event.getAction() == MotionEvent.ACTION_SCROLL && !mIsBeingDragged) {
+            if (getOrientation() == HORIZONTAL) {
+                final float hscroll = event.getAxisValue(MotionEvent.AXIS_HSCROLL);
+                if (hscroll != 0) {
+                    final int delta = (int) (hscroll * getScrollFactorCompat());
+                    final int range = getScrollRange();
+                    int oldScrollX = getScrollX();
+                    int newScrollX = restrainIntRange(oldScrollX - delta, 0, range);
+                    if (newScrollX != oldScrollX) {
+                        super.scrollTo(newScrollX, getScrollY());
+                        return true;
+                    }
+                }
+            } else {
+                final float vscroll = event.getAxisValue(MotionEvent.AXIS_VSCROLL);
+                if (vscroll != 0) {
+                    final int delta = (int) (vscroll * getScrollFactorCompat());
+                    final int range = getScrollRange();
+                    int oldScrollY = getScrollY();
+                    int newScrollY = restrainIntRange(oldScrollY - delta, 0, range);
+                    if (newScrollY != oldScrollY) {
+                        super.scrollTo(getScrollX(), newScrollY);
+                        return true;
+                    }
                 }
+            }
+        }
+        return false;
+    }
 
-                // Remember where the motion event started
-                if (horizontal) {
-                    mLastMotionX = (int) ev.getX();
-                } else {
-                    mLastMotionY = (int) ev.getY();
-                }
-                mActivePointerId = ev.getPointerId(0);
-                startNestedScroll(horizontal ? ViewCompat.SCROLL_AXIS_HORIZONTAL : ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
-                break;
+    private float getScrollFactorCompat() {
+        if (mScrollFactor == 0) {
+            TypedValue outValue = new TypedValue();
+            final Context context = getContext();
+            if (!context.getTheme().resolveAttribute(
+                    android.R.attr.listPreferredItemHeight, outValue, true)) {
+                throw new IllegalStateException(
+                        "Expected theme to define listPreferredItemHeight.");
             }
-            case MotionEvent.ACTION_MOVE:
-                final int activePointerIndex = ev.findPointerIndex(mActivePointerId);
-                if (activePointerIndex == -1) {
-                    Log.e(TAG, "Invalid pointerId=" + mActivePointerId + " in onTouchEvent");
-                    break;
-                }
+            mScrollFactor = outValue.getDimension(context.getResources().getDisplayMetrics());
+        }
+        return mScrollFactor;
+    }
 
-                final int x = (int) ev.getX(activePointerIndex);
-                final int y = (int) ev.getY(activePointerIndex);
-                int deltaX = 0, deltaY = 0;
-                if (horizontal) {
-                    deltaX = mLastMotionX - x;
+    @Override
+    protected void onOverScrolled(int scrollX, int scrollY,
+                                  boolean clampedX, boolean clampedY) {
+        if (mScrollable) {
+            super.scrollTo(scrollX, scrollY);
+        }
+    }
+
+    boolean overScrollByCompat(int deltaX, int deltaY, int scrollX, int scrollY,
+                               int scrollRangeX, int scrollRangeY, int maxOverScrollX, int maxOverScrollY,
+                               boolean isTouchEvent) {
+        final int overScrollMode = getOverScrollMode();
+        final boolean canScrollHorizontal = computeHorizontalScrollRange() > computeHorizontalScrollExtent();
+        final boolean canScrollVertical = computeVerticalScrollRange() > computeVerticalScrollExtent();
+        final boolean overScrollHorizontal = overScrollMode == View.OVER_SCROLL_ALWAYS
+                || (overScrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && canScrollHorizontal);
+        final boolean overScrollVertical = overScrollMode == View.OVER_SCROLL_ALWAYS
+                || (overScrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && canScrollVertical);
+
+        int newScrollX = scrollX + deltaX;
+        if (!overScrollHorizontal) {
+            maxOverScrollX = 0;
+        }
+
+        int newScrollY = scrollY + deltaY;
+        if (!overScrollVertical) {
+            maxOverScrollY = 0;
+        }
+
+        // Clamp values if at the limits and record
+        final int left = -maxOverScrollX;
+        final int right = maxOverScrollX + scrollRangeX;
+        final int top = -maxOverScrollY;
+        final int bottom = maxOverScrollY + scrollRangeY;
+
+        boolean clampedX = false;
+        if (newScrollX > right) {
+            newScrollX = right;
+            clampedX = true;
+        } else if (newScrollX < left) {
+            newScrollX = left;
+            clampedX = true;
+        }
+
+        boolean clampedY = false;
+        if (newScrollY > bottom) {
+            newScrollY = bottom;
+            clampedY = true;
+        } else if (newScrollY < top) {
+            newScrollY = top;
+            clampedY = true;
+        }
+
+        int maxX = 0, maxY = 0;
+        if (getOrientation() == HORIZONTAL) {
+            maxX = getScrollRange();
+        } else {
+            maxY = getScrollRange();
+        }
+        if ((clampedX || clampedY) && !hasNestedScrollingParent(ViewCompat.TYPE_NON_TOUCH)) {
+            mScroller.springBack(newScrollX, newScrollY, 0, maxX, 0, maxY);
+            updateScrollState();
+        }
+
+        onOverScrolled(newScrollX, newScrollY, clampedX, clampedY);
+
+        return clampedX || clampedY;
+    }
+
+    int getScrollRange() {
+        if (mContentExtentValid) {
+            return mCachedScrollRange;
+        }
+        int scrollRange = 0;
+        if (mScrollable && getChildCount() > 0) {
+            if (getOrientation() == HORIZONTAL) {
+                scrollRange = Math.max(0, getChildContentWidth() - (getWidth() - getPaddingLeft() - getPaddingRight()));
+            } else {
+                scrollRange = Math.max(0, getChildContentHeight() - (getHeight() - getPaddingBottom() - getPaddingTop()));
+            }
+        }
+        return scrollRange;
+    }
+
+
+    /**
+     * <p>
+     * Finds the next focusable component that fits in this View's bounds
+     * (excluding fading edges) pretending that this View's left is located at
+     * the parameter left.
+     * </p>
+     *
+     * @param leftFocus          look for a candidate is the one at the left of the bounds
+     *                           if leftFocus is true, or at the right of the bounds if leftFocus
+     *                           is false
+     * @param left               the left offset of the bounds in which a focusable must be
+     *                           found (the fading edge is assumed to start at this position)
+     * @param preferredFocusable the View that has highest priority and will be
+     *                           returned if it is within my bounds (null is valid)
+     * @return the next focusable component in the bounds or null if none can be found
+     */
+    private View findFocusableViewInMyBounds(final boolean leftFocus,
+                                             final int left, View preferredFocusable) {
+        /*
+         * The fading edge's transparent side should be considered for focus
+         * since it's mostly visible, so we divide the actual fading edge length
+         * by 2.
+         */
+        final int fadingEdgeLength = getHorizontalFadingEdgeLength() / 2;
+        final int leftWithoutFadingEdge = left + fadingEdgeLength;
+        final int rightWithoutFadingEdge = left + getWidth() - fadingEdgeLength;
+
+        if ((preferredFocusable != null)
+                && (preferredFocusable.getLeft() < rightWithoutFadingEdge)
+                && (preferredFocusable.getRight() > leftWithoutFadingEdge)) {
+            return preferredFocusable;
+        }
+
+        return findFocusableViewInBounds(leftFocus, leftWithoutFadingEdge, rightWithoutFadingEdge);
+    }
+
+    /**
+     * <p>
+     * Finds the next focusable component that fits in the specified bounds.
+     * </p>
+     *
+     * @param startFocus look for a candidate is the one at the top of the bounds
+     *                   if topFocus is true, or at the bottom of the bounds if topFocus is
+     *                   false
+     * @param start      the top offset of the bounds in which a focusable must be
+     *                   found
+     * @param end        the bottom offset of the bounds in which a focusable must
+     *                   be found
+     * @return the next focusable component in the bounds or null if none can
+     * be found
+     */
+    private View findFocusableViewInBounds(boolean startFocus, int start, int end) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final List<View> focusables = mFocusableCandidates;
+        focusables.clear();
+        restrictFocusSearch(start, end);
+        try {
+            addFocusables(mFocusableCandidates, View.FOCUS_FORWARD);
+        } finally {
+            mFocusSearchRestricted = false;
+        }
+        View focusCandidate = null;
+
+        /*
+         * A fully contained focusable is one where its top is below the bound's
+         * top, and its bottom is above the bound's bottom. A partially
+         * contained focusable is one where some part of it is within the
+         * bounds, but it also has some part that is not within bounds.  A fully contained
+         * focusable is preferred to a partially contained focusable.
+         */
+        boolean foundFullyContainedFocusable = false;
+
+        for (int i = 0, count = focusables.size(); i < count; i++) {
+            View view = focusables.get(i);
+            int viewLeft = view.getLeft();
+            int viewRight = view.getRight();
+            int viewTop = view.getTop();
+            int viewBottom = view.getBottom();
+
+            if (horizontal && start < viewRight && viewLeft < end) {
+                /*
+                 * the focusable is in the target area, it is a candidate for
+                 * focusing
+                 */
+                final boolean viewIsFullyContained = (start < viewLeft) && (viewRight < end);
+
+                if (focusCandidate == null) {
+                    /* No candidate, take this one */
+                    focusCandidate = view;
+                    foundFullyContainedFocusable = viewIsFullyContained;
                 } else {
-                    deltaY = mLastMotionY - y;
-                }
-                if (dispatchNestedPreScroll(deltaX, deltaY, mScrollConsumed, mScrollOffset, ViewCompat.TYPE_TOUCH)) {
-                    if (horizontal) {
-                        deltaX -= mScrollConsumed[0];
-                        vtev.offsetLocation(mScrollOffset[0], 0);
-                        mNestedXOffset += mScrollOffset[0];
+                    final boolean viewIsCloserToBoundary =
+                            (startFocus && viewLeft < focusCandidate.getLeft()) ||
+                                    (!startFocus && viewRight > focusCandidate.getRight());
+
+                    if (foundFullyContainedFocusable) {
+                        if (viewIsFullyContained && viewIsCloserToBoundary) {
+                            /*
+                             * We're dealing with only fully contained views, so
+                             * it has to be closer to the boundary to beat our
+                             * candidate
+                             */
+                            focusCandidate = view;
+                        }
                     } else {
-                        deltaY -= mScrollConsumed[1];
-                        vtev.offsetLocation(0, mScrollOffset[1]);
-                        mNestedYOffset += mScrollOffset[1];
-                    }
-                }
-                if (!mIsBeingDragged && Math.abs(deltaX + deltaY) > mTouchSlop) {
-                    final ViewParent parent = getParent();
-                    if (parent != null) {
-                        parent.requestDisallowInterceptTouchEvent(true);
-                    }
-                    mIsBeingDragged = true;
-                    if (horizontal) {
-                        if (deltaX > 0) {
-                            deltaX -= mTouchSlop;
-                        } else {
-                            deltaX += mTouchSlop;
+                        if (viewIsFullyContained) {
+                            /* Any fully contained view beats a partially contained view */
+                            focusCandidate = view;
+                            foundFullyContainedFocusable = true;
+                        } else if (viewIsCloserToBoundary) {
+                            /*
+                             * Partially contained view beats another partially
+                             * contained view if it's closer
+                             */
+                            focusCandidate = view;
+                        }
+                    }
+                }
+            } else if (!horizontal && start < viewBottom && viewTop < end) {
+                /*
+                 * the focusable is in the target area, it is a candidate for
+                 * focusing
+                 */
+                final boolean viewIsFullyContained = (start < viewTop) && (viewBottom < end);
+
+                if (focusCandidate == null) {
+                    /* No candidate, take this one */
+                    focusCandidate = view;
+                    foundFullyContainedFocusable = viewIsFullyContained;
+                } else {
+                    final boolean viewIsCloserToBoundary =
+                            (startFocus && viewTop < focusCandidate.getTop())
+                                    || (!startFocus && viewBottom > focusCandidate.getBottom());
+
+                    if (foundFullyContainedFocusable) {
+                        if (viewIsFullyContained && viewIsCloserToBoundary) {
+                            /*
+                             * We're dealing with only fully contained views, so
+                             * it has to be closer to the boundary to beat our
+                             * candidate
+                             */
+                            focusCandidate = view;
                         }
                     } else {
-                        if (deltaY > 0) {
-                            deltaY -= mTouchSlop;
-                        } else {
-                            deltaY += mTouchSlop;
+                        if (viewIsFullyContained) {
+                            /* Any fully contained view beats a partially contained view */
+                            focusCandidate = view;
+                            foundFullyContainedFocusable = true;
+                        } else if (viewIsCloserToBoundary) {
+                            /*
+                             * Partially contained view beats another partially
+                             * contained view if it's closer
+                             */
+                            focusCandidate = view;
                         }
                     }
                 }
-                if (mIsBeingDragged) {
-                    if (horizontal) {
-                        // Scroll to follow the motion event
-                        mLastMotionX = x - mScrollOffset[0];
+            }
+        }
 
-                        final int oldX = getScrollX();
-                        final int range = getScrollRange();
-                        final int overscrollMode = getOverScrollMode();
-                        boolean canOverscroll = overscrollMode == View.OVER_SCROLL_ALWAYS
-                                || (overscrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && range > 0);
+        focusables.clear();
+        return focusCandidate;
+    }
 
-                        // Calling overScrollByCompat will call onOverScrolled, which
-                        // calls onScrollChanged if applicable.
-                        if (overScrollByCompat(deltaX, 0, getScrollX(), 0, range, 0, 0,
-                                mOverscrollDistance, true) && !hasNestedScrollingParent(ViewCompat.TYPE_TOUCH)) {
-                            // Break our velocity if we hit a scroll barrier.
-                            mVelocityTracker.clear();
-                        }
+    /**
+     * 将焦点查找限制在滚动方向上与指定区间相交的子视图内，二分查找，O(log n)。
+     * 适配器模式下子视图仅为已添加的条目，不做限制
+     *
+     * @param start 区间起始位置，与子视图坐标一致
+     * @param end   区间结束位置
+     */
+    private void restrictFocusSearch(int start, int end) {
+        if (!mScrollable || mAdapter != null || getChildCount() == 0) {
+            return;
+        }
+        ensureChildOffsets();
+        int first = findOffsetIndex(start);
+        if (getOffsetIndexEnd(first) <= start) {
+            first++;
+        }
+        mFocusSearchFirst = first;
+        mFocusSearchLast = end > start ? findOffsetIndex(end - 1) : first - 1;
+        mFocusSearchRestricted = true;
+    }
 
-                        final int scrolledDeltaX = getScrollX() - oldX;
-                        final int unconsumedX = deltaX - scrolledDeltaX;
-                        if (dispatchNestedScroll(scrolledDeltaX, 0, unconsumedX, 0, mScrollOffset, ViewCompat.TYPE_TOUCH)) {
-                            mLastMotionX -= mScrollOffset[0];
-                            vtev.offsetLocation(mScrollOffset[0], 0);
-                            mNestedXOffset += mScrollOffset[0];
-                        } else if (canOverscroll) {
-                            ensureGlows();
-                            final int pulledToX = oldX + deltaX;
-                            if (pulledToX < 0) {
-                                EdgeEffectCompat.onPull(mEdgeGlowLeft, (float) deltaX / getWidth(),
-                                        1.f - ev.getY(activePointerIndex) / getHeight());
-                                if (!mEdgeGlowRight.isFinished()) {
-                                    mEdgeGlowRight.onRelease();
-                                }
-                            } else if (pulledToX > range) {
-                                EdgeEffectCompat.onPull(mEdgeGlowRight, (float) deltaX / getWidth(),
-                                        ev.getY(activePointerIndex) / getHeight());
-                                if (!mEdgeGlowLeft.isFinished()) {
-                                    mEdgeGlowLeft.onRelease();
-                                }
-                            }
-                            if (mEdgeGlowLeft != null
-                                    && (!mEdgeGlowLeft.isFinished() || !mEdgeGlowRight.isFinished())) {
-                                ViewCompat.postInvalidateOnAnimation(this);
-                            }
-                        }
-                    } else {
-                        // Scroll to follow the motion event
-                        mLastMotionY = y - mScrollOffset[1];
+    /**
+     * 在滚动方向上与指定区间相交的子视图内查找下一个焦点
+     *
+     * @param start 区间起始位置，与子视图坐标一致
+     * @param end   区间结束位置
+     */
+    private View findNextFocusInWindow(View focused, Rect focusedRect, int direction, int start, int end) {
+        restrictFocusSearch(start, end);
+        try {
+            return focusedRect == null
+                    ? FocusFinder.getInstance().findNextFocus(this, focused, direction)
+                    : FocusFinder.getInstance().findNextFocusFromRect(this, focusedRect, direction);
+        } finally {
+            mFocusSearchRestricted = false;
+        }
+    }
+
+    @Override
+    public void addFocusables(ArrayList<View> views, int direction, int focusableMode) {
+        if (!mFocusSearchRestricted || getDescendantFocusability() == FOCUS_BLOCK_DESCENDANTS) {
+            super.addFocusables(views, direction, focusableMode);
+            return;
+        }
+        final int focusableCount = views.size();
+        final int last = Math.min(mFocusSearchLast, getChildCount() - 1);
+        for (int i = Math.max(0, mFocusSearchFirst); i <= last; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == VISIBLE) {
+                child.addFocusables(views, direction, focusableMode);
+            }
+        }
+        // 与父类一致，FOCUS_AFTER_DESCENDANTS 且已有子视图可获取焦点时不添加自身
+        if (getDescendantFocusability() != FOCUS_AFTER_DESCENDANTS || focusableCount == views.size()) {
+            addSelfFocusable(views, focusableMode);
+        }
+    }
+
+    /**
+     * 与 {@link View#addFocusables(ArrayList, int, int)} 对自身的判断一致：可见、可获取焦点且可用，
+     * 触摸模式下只查找可在触摸模式下获取焦点的视图
+     */
+    private void addSelfFocusable(ArrayList<View> views, int focusableMode) {
+        if (getVisibility() != VISIBLE || !isFocusable() || !isEnabled()) {
+            return;
+        }
+        if ((focusableMode & FOCUSABLES_TOUCH_MODE) == FOCUSABLES_TOUCH_MODE
+                && isInTouchMode() && !isFocusableInTouchMode()) {
+            return;
+        }
+        views.add(this);
+    }
+
+    /**
+     * <p>Handles scrolling in response to a "page up/down" shortcut press. This
+     * method will scroll the view by one page up or down and give the focus
+     * to the topmost/bottommost component in the new visible area. If no
+     * component is a good candidate for focus, this scrollview reclaims the
+     * focus.</p>
+     *
+     * @param direction the scroll direction: {@link android.view.View#FOCUS_UP}
+     *                  to go one page up or
+     *                  {@link android.view.View#FOCUS_DOWN} to go one page down
+     * @return true if the key event is consumed by this method, false otherwise
+     */
+    public boolean pageScroll(int direction) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        if (horizontal && (direction == View.FOCUS_UP || direction == View.FOCUS_DOWN)) {
+            return false;
+        } else if (!horizontal && (direction == View.FOCUS_LEFT || direction == View.FOCUS_RIGHT)) {
+            return false;
+        }
+
+        int width = getWidth();
+        int height = getHeight();
+
+        if (direction == View.FOCUS_RIGHT) {
+            mTempRect.left = getScrollX() + width;
+            int count = getChildCount();
+            if (count > 0) {
+                int right = getChildContentEnd() + getPaddingRight();
+                if (mTempRect.left + width > right) {
+                    mTempRect.left = right - width;
+                }
+            }
+        } else if (direction == View.FOCUS_LEFT) {
+            mTempRect.left = getScrollX() - width;
+            if (mTempRect.left < 0) {
+                mTempRect.left = 0;
+            }
+        } else if (direction == View.FOCUS_DOWN) {
+            mTempRect.top = getScrollY() + height;
+            int count = getChildCount();
+            if (count > 0) {
+                int bottom = getChildContentEnd() + getPaddingBottom();
+                if (mTempRect.top + height > bottom) {
+                    mTempRect.top = bottom - height;
+                }
+            }
+        } else {
+            mTempRect.top = getScrollY() - height;
+            if (mTempRect.top < 0) {
+                mTempRect.top = 0;
+            }
+        }
+
+        if (horizontal) {
+            mTempRect.right = mTempRect.left + width;
+            return scrollAndFocus(direction, mTempRect.left, mTempRect.right);
+        } else {
+            mTempRect.bottom = mTempRect.top + height;
+            return scrollAndFocus(direction, mTempRect.top, mTempRect.bottom);
+        }
+    }
+
+    /**
+     * <p>Handles scrolling in response to a "home/end" shortcut press. This
+     * method will scroll the view to the top or bottom and give the focus
+     * to the topmost/bottommost component in the new visible area. If no
+     * component is a good candidate for focus, this scrollview reclaims the
+     * focus.</p>
+     *
+     * @param direction the scroll direction: {@link android.view.View#FOCUS_UP}
+     *                  to go the top of the view or
+     *                  {@link android.view.View#FOCUS_DOWN} to go the bottom
+     * @return true if the key event is consumed by this method, false otherwise
+     */
+    public boolean fullScroll(int direction) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        if (horizontal && (direction == View.FOCUS_UP || direction == View.FOCUS_DOWN)) {
+            return false;
+        } else if (!horizontal && (direction == View.FOCUS_LEFT || direction == View.FOCUS_RIGHT)) {
+            return false;
+        }
+
+        int width = getWidth();
+        int height = getHeight();
+
+        mTempRect.left = 0;
+        mTempRect.right = width;
+        mTempRect.top = 0;
+        mTempRect.bottom = height;
+
+        if (direction == View.FOCUS_DOWN) {
+            int count = getChildCount();
+            if (count > 0) {
+                mTempRect.bottom = getChildContentEnd() + getPaddingBottom();
+                mTempRect.top = mTempRect.bottom - height;
+            }
+        } else if (direction == View.FOCUS_RIGHT) {
+            int count = getChildCount();
+            if (count > 0) {
+                mTempRect.right = getChildContentEnd() + getPaddingRight();
+                mTempRect.left = mTempRect.right - width;
+            }
+        }
+
+        if (horizontal) {
+            return scrollAndFocus(direction, mTempRect.left, mTempRect.right);
+        } else {
+            return scrollAndFocus(direction, mTempRect.top, mTempRect.bottom);
+        }
+    }
+
+    /**
+     * <p>Scrolls the view to make the area defined by <code>top</code> and
+     * <code>bottom</code> visible. This method attempts to give the focus
+     * to a component visible in this area. If no component can be focused in
+     * the new visible area, the focus is reclaimed by this ScrollView.</p>
+     *
+     * @param direction the scroll direction: {@link android.view.View#FOCUS_UP}
+     *                  to go upward, {@link android.view.View#FOCUS_DOWN} to downward
+     * @param start     the top offset of the new area to be made visible
+     * @param end       the bottom offset of the new area to be made visible
+     * @return true if the key event is consumed by this method, false otherwise
+     */
+    private boolean scrollAndFocus(int direction, int start, int end) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+
+        boolean handled = true;
+
+        int containerStart = horizontal ? getScrollX() : getScrollY();
+        int containerEnd = containerStart + (horizontal ? getWidth() : getHeight());
+        boolean up = (horizontal && direction == View.FOCUS_LEFT) || (!horizontal && direction == View.FOCUS_UP);
+
+        View newFocused = findFocusableViewInBounds(up, start, end);
+        if (newFocused == null) {
+            newFocused = this;
+        }
+
+        if (start >= containerStart && end <= containerEnd) {
+            handled = false;
+        } else {
+            int delta = up ? (start - containerStart) : (end - containerEnd);
+            if (horizontal) {
+                doScroll(delta, 0);
+            } else {
+                doScroll(0, delta);
+            }
+        }
 
-                        final int oldY = getScrollY();
-                        final int range = getScrollRange();
-                        final int overscrollMode = getOverScrollMode();
-                        boolean canOverscroll = overscrollMode == View.OVER_SCROLL_ALWAYS
-                                || (overscrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && range > 0);
+        if (newFocused != findFocus()) newFocused.requestFocus(direction);
 
-                        // Calling overScrollByCompat will call onOverScrolled, which
-                        // calls onScrollChanged if applicable.
-                        if (overScrollByCompat(0, deltaY, 0, getScrollY(), 0, range, 0,
-                                0, true) && !hasNestedScrollingParent(ViewCompat.TYPE_TOUCH)) {
-                            // Break our velocity if we hit a scroll barrier.
-                            mVelocityTracker.clear();
-                        }
+        return handled;
+    }
 
-                        final int scrolledDeltaY = getScrollY() - oldY;
-                        final int unconsumedY = deltaY - scrolledDeltaY;
-                        if (dispatchNestedScroll(0, scrolledDeltaY, 0, unconsumedY, mScrollOffset,
-                                ViewCompat.TYPE_TOUCH)) {
-                            mLastMotionY -= mScrollOffset[1];
-                            vtev.offsetLocation(0, mScrollOffset[1]);
-                            mNestedYOffset += mScrollOffset[1];
-                        } else if (canOverscroll) {
-                            ensureGlows();
-                            final int pulledToY = oldY + deltaY;
-                            if (pulledToY < 0) {
-                                EdgeEffectCompat.onPull(mEdgeGlowTop, (float) deltaY / getHeight(),
-                                        ev.getX(activePointerIndex) / getWidth());
-                                if (!mEdgeGlowBottom.isFinished()) {
-                                    mEdgeGlowBottom.onRelease();
-                                }
-                            } else if (pulledToY > range) {
-                                EdgeEffectCompat.onPull(mEdgeGlowBottom, (float) deltaY / getHeight(),
-                                        1.f - ev.getX(activePointerIndex) / getWidth());
-                                if (!mEdgeGlowTop.isFinished()) {
-                                    mEdgeGlowTop.onRelease();
-                                }
-                            }
-                            if (mEdgeGlowTop != null
-                                    && (!mEdgeGlowTop.isFinished() || !mEdgeGlowBottom.isFinished())) {
-                                ViewCompat.postInvalidateOnAnimation(this);
-                            }
-                        }
-                    }
+    /**
+     * Handle scrolling in response to an up or down arrow click.
+     *
+     * @param direction The direction corresponding to the arrow key that was
+     *                  pressed
+     * @return True if we consumed the event, false otherwise
+     */
+    public boolean arrowScroll(int direction) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+
+        View currentFocused = findFocus();
+        if (currentFocused == this) currentFocused = null;
+
+        final int maxJump = getMaxScrollAmount();
+
+        // 超出屏幕 maxJump 之外的候选不会被采用，只在该范围内的子视图中查找
+        final int screenStart = horizontal ? getScrollX() : getScrollY();
+        final int screenEnd = screenStart + (horizontal ? getWidth() : getHeight());
+        View nextFocused = findNextFocusInWindow(currentFocused, null, direction,
+                screenStart - maxJump, screenEnd + maxJump + 1);
+
+        if (nextFocused != null && isWithinDeltaOfScreen(nextFocused, maxJump, getHeight(), getWidth())) {
+            nextFocused.getDrawingRect(mTempRect);
+            offsetDescendantRectToMyCoords(nextFocused, mTempRect);
+            int scrollDeltaX = 0, scrollDeltaY = 0;
+            if (horizontal) {
+                scrollDeltaX = computeScrollDeltaToGetChildRectOnScreen(mTempRect);
+            } else {
+                scrollDeltaY = computeScrollDeltaToGetChildRectOnScreen(mTempRect);
+            }
+            doScroll(scrollDeltaX, scrollDeltaY);
+            nextFocused.requestFocus(direction);
+        } else {
+            // no new focus
+            int scrollDelta = maxJump;
+
+            if (horizontal) {
+                if (direction == View.FOCUS_LEFT && getScrollX() < scrollDelta) {
+                    scrollDelta = getScrollX();
+                } else if (direction == View.FOCUS_RIGHT && getChildCount() > 0) {
+                    int daRight = getChildContentEnd();
+                    int screenRight = getScrollX() + getWidth() - getPaddingRight();
+                    scrollDelta = Math.min(daRight - screenRight, maxJump);
                 }
-                break;
-            case MotionEvent.ACTION_UP:
-                final VelocityTracker velocityTracker = mVelocityTracker;
-                velocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
-                if (horizontal) {
-                    int initialVelocity = (int) velocityTracker.getXVelocity(mActivePointerId);
-                    if ((Math.abs(initialVelocity) > mMinimumVelocity)) {
-                        if (!dispatchNestedPreFling(-initialVelocity, 0)) {
-                            dispatchNestedFling(-initialVelocity, 0, true);
-                            flingXWithNestedDispatch(-initialVelocity);
-                        }
-                    } else if (mScroller.springBack(getScrollX(), getScrollY(), 0, getScrollRange(), 0, 0)) {
-                        ViewCompat.postInvalidateOnAnimation(this);
-                    }
-                } else {
-                    int initialVelocity = (int) velocityTracker.getYVelocity(mActivePointerId);
-                    if ((Math.abs(initialVelocity) > mMinimumVelocity)) {
-                        if (!dispatchNestedPreFling(0, -initialVelocity)) {
-                            dispatchNestedFling(0, -initialVelocity, true);
-                            flingYWithNestedDispatch(-initialVelocity);
-                        }
-                    } else if (mScroller.springBack(getScrollX(), getScrollY(), 0, 0, 0, getScrollRange())) {
-                        ViewCompat.postInvalidateOnAnimation(this);
-                    }
+                if (scrollDelta == 0) {
+                    return false;
                 }
-                mActivePointerId = INVALID_POINTER;
-                endDrag();
-                break;
-            case MotionEvent.ACTION_CANCEL:
-                if (mIsBeingDragged && getChildCount() > 0) {
-                    int maxX = 0, maxY = 0;
-                    if (horizontal) {
-                        maxX = getScrollRange();
-                    } else {
-                        maxY = getScrollRange();
-                    }
-                    if (mScroller.springBack(getScrollX(), getScrollY(), 0, maxX, 0, maxY)) {
-                        ViewCompat.postInvalidateOnAnimation(this);
-                    }
+                doScroll(direction == View.FOCUS_RIGHT ? scrollDelta : -scrollDelta, 0);
+            } else {
+                if (direction == View.FOCUS_UP && getScrollY() < scrollDelta) {
+                    scrollDelta = getScrollY();
+                } else if (direction == View.FOCUS_DOWN && getChildCount() > 0) {
+                    int daBottom = getChildContentEnd();
+                    int screenBottom = getScrollY() + getHeight() - getPaddingBottom();
+                    scrollDelta = Math.min(daBottom - screenBottom, maxJump);
                 }
-                mActivePointerId = INVALID_POINTER;
-                endDrag();
-                break;
-            case MotionEvent.ACTION_POINTER_DOWN: {
-                final int index = ev.getActionIndex();
-                if (horizontal) {
-                    mLastMotionX = (int) ev.getX(index);
-                } else {
-                    mLastMotionY = (int) ev.getY(index);
+                if (scrollDelta == 0) {
+                    return false;
                 }
-                mActivePointerId = ev.getPointerId(index);
-                break;
+                doScroll(0, direction == View.FOCUS_DOWN ? scrollDelta : -scrollDelta);
             }
-            case MotionEvent.ACTION_POINTER_UP:
-                onSecondaryPointerUp(ev);
-                if (horizontal) {
-                    mLastMotionX = (int) ev.getX(ev.findPointerIndex(mActivePointerId));
-                } else {
-                    mLastMotionY = (int) ev.getY(ev.findPointerIndex(mActivePointerId));
-                }
-                break;
         }
 
-        if (mVelocityTracker != null) {
-            mVelocityTracker.addMovement(vtev);
+        if (currentFocused != null && currentFocused.isFocused() && isOffScreen(currentFocused)) {
+            // previously focused item still has focus and is off screen, give
+            // it up (take it back to ourselves)
+            // (also, need to temporarily force FOCUS_BEFORE_DESCENDANTS so we are
+            // sure to
+            // get it)
+            final int descendantFocusability = getDescendantFocusability();  // save
+            setDescendantFocusability(ViewGroup.FOCUS_BEFORE_DESCENDANTS);
+            requestFocus();
+            setDescendantFocusability(descendantFocusability);  // restore
         }
-        vtev.recycle();
         return true;
     }
 
-    private void onSecondaryPointerUp(MotionEvent ev) {
-        final int pointerIndex = ev.getActionIndex();
-        final int pointerId = ev.getPointerId(pointerIndex);
-        if (pointerId == mActivePointerId) {
-            // This was our active pointer going up. Choose a new
-            // active pointer and adjust accordingly.
-            // TODO: Make this decision more intelligent.
-            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+    /**
+     * @return whether the descendant of this scroll view is scrolled off
+     * screen.
+     */
+    private boolean isOffScreen(View descendant) {
+        return !isWithinDeltaOfScreen(descendant, 0, getHeight(), getWidth());
+    }
+
+    /**
+     * @return whether the descendant of this scroll view is within delta
+     * pixels of being on the screen.
+     */
+    private boolean isWithinDeltaOfScreen(View descendant, int delta, int height, int width) {
+        descendant.getDrawingRect(mTempRect);
+        offsetDescendantRectToMyCoords(descendant, mTempRect);
+
+        if (getOrientation() == HORIZONTAL) {
+            return (mTempRect.right + delta) >= getScrollX()
+                    && (mTempRect.left - delta) <= (getScrollX() + width);
+        } else {
+            return (mTempRect.bottom + delta) >= getScrollY()
+                    && (mTempRect.top - delta) <= (getScrollY() + height);
+        }
+
+    }
+
+    /**
+     * Smooth scroll by a Y delta
+     *
+     * @param deltaY the number of pixels to scroll by on the Y axis
+     */
+    private void doScroll(int deltaX, int deltaY) {
+        if (deltaX != 0 || deltaY != 0) {
+            if (mSmoothScrollingEnabled) {
+                smoothScrollBy(deltaX, deltaY);
+            } else {
+                scrollBy(deltaX, deltaY);
+            }
+        }
+    }
+
+    /**
+     * Like {@link View#scrollBy}, but scroll smoothly instead of immediately.
+     *
+     * @param dx the number of pixels to scroll by on the X axis
+     * @param dy the number of pixels to scroll by on the Y axis
+     */
+    public final void smoothScrollBy(int dx, int dy) {
+        smoothScrollBy(dx, dy, DEFAULT_SMOOTH_SCROLL_DURATION, false);
+    }
+
+    /**
+     * Like {@link View#scrollBy}, but scroll smoothly instead of immediately.
+     *
+     * @param dx               the number of pixels to scroll by on the X axis
+     * @param dy               the number of pixels to scroll by on the Y axis
+     * @param scrollDurationMs the duration of the smooth scroll operation in milliseconds
+     */
+    public final void smoothScrollBy(int dx, int dy, int scrollDurationMs) {
+        smoothScrollBy(dx, dy, scrollDurationMs, false);
+    }
+
+
+    /**
+     * Like {@link View#scrollBy}, but scroll smoothly instead of immediately.
+     *
+     * @param dx                  the number of pixels to scroll by on the X axis
+     * @param dy                  the number of pixels to scroll by on the Y axis
+     * @param scrollDurationMs    the duration of the smooth scroll operation in milliseconds
+     * @param withNestedScrolling whether to include nested scrolling operations.
+     */
+    private void smoothScrollBy(int dx, int dy, int scrollDurationMs, boolean withNestedScrolling) {
+        if (getChildCount() == 0) {
+            // Nothing to do.
+            return;
+        }
+        if (mSmoothScrollRetargetEnabled) {
+            final boolean horizontal = getOrientation() == HORIZONTAL;
+            final int scroll = horizontal ? getScrollX() : getScrollY();
+            final int target = Math.max(0, Math.min(scroll + (horizontal ? dx : dy), getScrollRange()));
+            retargetAnimatedScroll(target, scrollDurationMs, withNestedScrolling);
+            return;
+        }
+        long duration = AnimationUtils.currentAnimationTimeMillis() - mLastScroll;
+        if (duration > ANIMATED_SCROLL_GAP) {
             if (getOrientation() == HORIZONTAL) {
-                mLastMotionX = (int) ev.getX(newPointerIndex);
+                int childrenWidth = getChildContentWidth();
+                int parentWidthSpace = getWidth() - getPaddingRight() - getPaddingLeft();
+                final int scrollX = getScrollX();
+                final int maxX = Math.max(0, childrenWidth - parentWidthSpace);
+                dx = Math.max(0, Math.min(scrollX + dx, maxX)) - scrollX;
+                mScrollInterpolator.reset();
+                mScroller.startScroll(scrollX, getScrollY(), dx, 0, scrollDurationMs);
+                recordAnimatedScroll(scrollX, scrollX + dx, scrollDurationMs);
             } else {
-                mLastMotionY = (int) ev.getY(newPointerIndex);
+                int childrenHeight = getChildContentHeight();
+                int parentHeightSpace = getHeight() - getPaddingTop() - getPaddingBottom();
+                final int scrollY = getScrollY();
+                final int maxY = Math.max(0, childrenHeight - parentHeightSpace);
+                dy = Math.max(0, Math.min(scrollY + dy, maxY)) - scrollY;
+                mScrollInterpolator.reset();
+                mScroller.startScroll(getScrollX(), scrollY, 0, dy, scrollDurationMs);
+                recordAnimatedScroll(scrollY, scrollY + dy, scrollDurationMs);
             }
-            mActivePointerId = ev.getPointerId(newPointerIndex);
-            if (mVelocityTracker != null) {
-                mVelocityTracker.clear();
+
+            runAnimatedScroll(withNestedScrolling);
+        } else {
+            if (!mScroller.isFinished()) {
+                abortAnimatedScroll();
             }
+            scrollBy(dx, dy);
         }
+        mLastScroll = AnimationUtils.currentAnimationTimeMillis();
+    }
+
+    /**
+     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     *
+     * @param x the position where to scroll on the X axis
+     * @param y the position where to scroll on the Y axis
+     */
+    public final void smoothScrollTo(int x, int y) {
+        smoothScrollTo(x, y, DEFAULT_SMOOTH_SCROLL_DURATION, false);
+    }
+
+    /**
+     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     *
+     * @param x                the position where to scroll on the X axis
+     * @param y                the position where to scroll on the Y axis
+     * @param scrollDurationMs the duration of the smooth scroll operation in milliseconds
+     */
+    public final void smoothScrollTo(int x, int y, int scrollDurationMs) {
+        smoothScrollTo(x, y, scrollDurationMs, false);
+    }
+
+    /**
+     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     *
+     * @param x                   the position where to scroll on the X axis
+     * @param y                   the position where to scroll on the Y axis
+     * @param withNestedScrolling whether to include nested scrolling operations.
+     */
+    // This should be considered private, it is package private to avoid a synthetic ancestor.
+    void smoothScrollTo(int x, int y, boolean withNestedScrolling) {
+        smoothScrollTo(x, y, DEFAULT_SMOOTH_SCROLL_DURATION, withNestedScrolling);
+    }
+
+    /**
+     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     *
+     * @param x                   the position where to scroll on the X axis
+     * @param y                   the position where to scroll on the Y axis
+     * @param scrollDurationMs    the duration of the smooth scroll operation in milliseconds
+     * @param withNestedScrolling whether to include nested scrolling operations.
+     */
+    // This should be considered private, it is package private to avoid a synthetic ancestor.
+    void smoothScrollTo(int x, int y, int scrollDurationMs, boolean withNestedScrolling) {
+        smoothScrollBy(x - getScrollX(), y - getScrollY(), scrollDurationMs, withNestedScrolling);
     }
 
+    /**
+     * <p>The scroll range of a scroll view is the overall height of all of its
+     * children.</p>
+     */
     @Override
-    public boolean onGenericMotionEvent(MotionEvent event) {
-        if (mScrollable && (event.getSource() & InputDeviceCompat.SOURCE_CLASS_POINTER) != 0
-                && event.getAction() == MotionEvent.ACTION_SCROLL && !mIsBeingDragged) {
-            if (getOrientation() == HORIZONTAL) {
-                final float hscroll = event.getAxisValue(MotionEvent.AXIS_HSCROLL);
-                if (hscroll != 0) {
-                    final int delta = (int) (hscroll * getScrollFactorCompat());
-                    final int range = getScrollRange();
-                    int oldScrollX = getScrollX();
-                    int newScrollX = restrainIntRange(oldScrollX - delta, 0, range);
-                    if (newScrollX != oldScrollX) {
-                        super.scrollTo(newScrollX, getScrollY());
-                        return true;
-                    }
-                }
-            } else {
-                final float vscroll = event.getAxisValue(MotionEvent.AXIS_VSCROLL);
-                if (vscroll != 0) {
-                    final int delta = (int) (vscroll * getScrollFactorCompat());
-                    final int range = getScrollRange();
-                    int oldScrollY = getScrollY();
-                    int newScrollY = restrainIntRange(oldScrollY - delta, 0, range);
-                    if (newScrollY != oldScrollY) {
-                        super.scrollTo(getScrollX(), newScrollY);
-                        return true;
-                    }
-                }
-            }
+    public int computeVerticalScrollRange() {
+        if (!mScrollable || getOrientation() == HORIZONTAL) {
+            return super.computeVerticalScrollRange();
+        }
+        final int count = getChildCount();
+        final int contentHeight = getHeight() - getPaddingBottom() - getPaddingTop();
+        if (count == 0) {
+            return contentHeight;
         }
-        return false;
-    }
 
-    private float getScrollFactorCompat() {
-        if (mScrollFactor == 0) {
-            TypedValue outValue = new TypedValue();
-            final Context context = getContext();
-            if (!context.getTheme().resolveAttribute(
-                    android.R.attr.listPreferredItemHeight, outValue, true)) {
-                throw new IllegalStateException(
-                        "Expected theme to define listPreferredItemHeight.");
-            }
-            mScrollFactor = outValue.getDimension(context.getResources().getDisplayMetrics());
+        int scrollRange = getChildContentEnd();
+        final int scrollY = getScrollY();
+        final int overscrollBottom = Math.max(0, scrollRange - contentHeight);
+        if (scrollY < 0) {
+            scrollRange -= scrollY;
+        } else if (scrollY > overscrollBottom) {
+            scrollRange += scrollY - overscrollBottom;
         }
-        return mScrollFactor;
+
+        return scrollRange;
     }
 
     @Override
-    protected void onOverScrolled(int scrollX, int scrollY,
-                                  boolean clampedX, boolean clampedY) {
-        if (mScrollable) {
-            super.scrollTo(scrollX, scrollY);
+    public int computeVerticalScrollOffset() {
+        if (!mScrollable || getOrientation() == HORIZONTAL) {
+            return super.computeVerticalScrollOffset();
         }
+        return Math.max(0, super.computeVerticalScrollOffset());
     }
 
-    boolean overScrollByCompat(int deltaX, int deltaY, int scrollX, int scrollY,
-                               int scrollRangeX, int scrollRangeY, int maxOverScrollX, int maxOverScrollY,
-                               boolean isTouchEvent) {
-        final int overScrollMode = getOverScrollMode();
-        final boolean canScrollHorizontal = computeHorizontalScrollRange() > computeHorizontalScrollExtent();
-        final boolean canScrollVertical = computeVerticalScrollRange() > computeVerticalScrollExtent();
-        final boolean overScrollHorizontal = overScrollMode == View.OVER_SCROLL_ALWAYS
-                || (overScrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && canScrollHorizontal);
-        final boolean overScrollVertical = overScrollMode == View.OVER_SCROLL_ALWAYS
-                || (overScrollMode == View.OVER_SCROLL_IF_CONTENT_SCROLLS && canScrollVertical);
+    @Override
+    public int computeVerticalScrollExtent() {
+        return super.computeVerticalScrollExtent();
+    }
 
-        int newScrollX = scrollX + deltaX;
-        if (!overScrollHorizontal) {
-            maxOverScrollX = 0;
+    @Override
+    public int computeHorizontalScrollRange() {
+        if (!mScrollable || getOrientation() == VERTICAL) {
+            return super.computeVerticalScrollRange();
+        }
+        final int count = getChildCount();
+        final int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        if (count == 0) {
+            return contentWidth;
         }
 
-        int newScrollY = scrollY + deltaY;
-        if (!overScrollVertical) {
-            maxOverScrollY = 0;
+        int scrollRange = getChildContentEnd();
+        final int scrollX = getScrollX();
+        final int overscrollRight = Math.max(0, scrollRange - contentWidth);
+        if (scrollX < 0) {
+            scrollRange -= scrollX;
+        } else if (scrollX > overscrollRight) {
+            scrollRange += scrollX - overscrollRight;
         }
 
-        // Clamp values if at the limits and record
-        final int left = -maxOverScrollX;
-        final int right = maxOverScrollX + scrollRangeX;
-        final int top = -maxOverScrollY;
-        final int bottom = maxOverScrollY + scrollRangeY;
+        return scrollRange;
+    }
 
-        boolean clampedX = false;
-        if (newScrollX > right) {
-            newScrollX = right;
-            clampedX = true;
-        } else if (newScrollX < left) {
-            newScrollX = left;
-            clampedX = true;
+    @Override
+    public int computeHorizontalScrollOffset() {
+        if (!mScrollable || getOrientation() == VERTICAL) {
+            return super.computeHorizontalScrollOffset();
         }
+        return Math.max(0, super.computeHorizontalScrollOffset());
+    }
 
-        boolean clampedY = false;
-        if (newScrollY > bottom) {
-            newScrollY = bottom;
-            clampedY = true;
-        } else if (newScrollY < top) {
-            newScrollY = top;
-            clampedY = true;
-        }
+    @Override
+    public int computeHorizontalScrollExtent() {
+        return super.computeHorizontalScrollExtent();
+    }
 
-        int maxX = 0, maxY = 0;
+    @Override
+    protected void measureChild(View child, int parentWidthMeasureSpec, int parentHeightMeasureSpec) {
+        if (!mScrollable) {
+            super.measureChild(child, parentWidthMeasureSpec, parentHeightMeasureSpec);
+            return;
+        }
+        ViewGroup.LayoutParams lp = child.getLayoutParams();
         if (getOrientation() == HORIZONTAL) {
-            maxX = getScrollRange();
+            // 因为水平滚动，修改父容器的测量模式为不指定，便于子视图可以任意扩展宽度
+            parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.UNSPECIFIED);
+            // 因为测量bug，修正垂直方向上的尺寸模式
+            if (lp.height == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentHeightMeasureSpec) == MeasureSpec.AT_MOST) {
+                parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.EXACTLY);
+            }
         } else {
-            maxY = getScrollRange();
-        }
-        if ((clampedX || clampedY) && !hasNestedScrollingParent(ViewCompat.TYPE_NON_TOUCH)) {
-            mScroller.springBack(newScrollX, newScrollY, 0, maxX, 0, maxY);
+            if (lp.width == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentWidthMeasureSpec) == MeasureSpec.AT_MOST) {
+                parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.EXACTLY);
+            }
+            // 因为垂直滚动，所以高度模式不指定，便于子视图任意扩展高度
+            parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.UNSPECIFIED);
         }
 
-        onOverScrolled(newScrollX, newScrollY, clampedX, clampedY);
+        int childWidthMeasureSpec = getChildMeasureSpec(parentWidthMeasureSpec,
+                getPaddingLeft() + getPaddingRight(), lp.width);
+        int childHeightMeasureSpec = getChildMeasureSpec(parentHeightMeasureSpec,
+                getPaddingTop() + getPaddingBottom(), lp.height);
 
-        return clampedX || clampedY;
+        measureChildWithCache(child, childWidthMeasureSpec, childHeightMeasureSpec);
     }
 
-    int getScrollRange() {
-        int scrollRange = 0;
-        if (mScrollable && getChildCount() > 0) {
-            if (getOrientation() == HORIZONTAL) {
-                scrollRange = Math.max(0, getChildContentWidth() - (getWidth() - getPaddingLeft() - getPaddingRight()));
-            } else {
-                scrollRange = Math.max(0, getChildContentHeight() - (getHeight() - getPaddingBottom() - getPaddingTop()));
-            }
+    @Override
+    protected void measureChildWithMargins(View child, int parentWidthMeasureSpec, int widthUsed,
+                                           int parentHeightMeasureSpec, int heightUsed) {
+        if (!mScrollable) {
+            super.measureChildWithMargins(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed);
+            return;
         }
-        return scrollRange;
+        measureScrollableChildWithMargins(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed);
     }
 
+    /**
+     * 以滚动方向上不限制尺寸的方式测量子视图
+     */
+    private void measureScrollableChildWithMargins(View child, int parentWidthMeasureSpec, int widthUsed,
+                                                   int parentHeightMeasureSpec, int heightUsed) {
+        final int[] specs = mTempMeasureSpecs;
+        makeScrollableChildMeasureSpecs(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed,
+                specs);
+        measureChildWithCache(child, specs[0], specs[1]);
+    }
 
     /**
-     * <p>
-     * Finds the next focusable component that fits in this View's bounds
-     * (excluding fading edges) pretending that this View's left is located at
-     * the parameter left.
-     * </p>
+     * 计算可滚动模式下子视图的测量规格
      *
-     * @param leftFocus          look for a candidate is the one at the left of the bounds
-     *                           if leftFocus is true, or at the right of the bounds if leftFocus
-     *                           is false
-     * @param left               the left offset of the bounds in which a focusable must be
-     *                           found (the fading edge is assumed to start at this position)
-     * @param preferredFocusable the View that has highest priority and will be
-     *                           returned if it is within my bounds (null is valid)
-     * @return the next focusable component in the bounds or null if none can be found
+     * @param outSpecs 输出宽度及高度的测量规格
      */
-    private View findFocusableViewInMyBounds(final boolean leftFocus,
-                                             final int left, View preferredFocusable) {
-        /*
-         * The fading edge's transparent side should be considered for focus
-         * since it's mostly visible, so we divide the actual fading edge length
-         * by 2.
-         */
-        final int fadingEdgeLength = getHorizontalFadingEdgeLength() / 2;
-        final int leftWithoutFadingEdge = left + fadingEdgeLength;
-        final int rightWithoutFadingEdge = left + getWidth() - fadingEdgeLength;
-
-        if ((preferredFocusable != null)
-                && (preferredFocusable.getLeft() < rightWithoutFadingEdge)
-                && (preferredFocusable.getRight() > leftWithoutFadingEdge)) {
-            return preferredFocusable;
+    private void makeScrollableChildMeasureSpecs(View child, int parentWidthMeasureSpec, int widthUsed,
+                                                 int parentHeightMeasureSpec, int heightUsed, int[] outSpecs) {
+        final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        int childWidth = lp.width;
+        int childHeight = lp.height;
+        // 与父类一致，滚动方向上尺寸不确定时，长度为0且设置了权重的子视图按包裹内容测量
+        final boolean weighted = lp instanceof LinearLayout.LayoutParams && ((LinearLayout.LayoutParams) lp).weight > 0;
+        if (getOrientation() == HORIZONTAL) {
+            if (weighted && childWidth == 0 && MeasureSpec.getMode(parentWidthMeasureSpec) != MeasureSpec.EXACTLY) {
+                childWidth = ViewGroup.LayoutParams.WRAP_CONTENT;
+            }
+            // 因为水平滚动，修改父容器的测量模式为不指定，便于子视图可以任意扩展宽度
+            parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.UNSPECIFIED);
+            // 因为测量bug，修正垂直方向上的尺寸模式
+            if (lp.height == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentHeightMeasureSpec) == MeasureSpec.AT_MOST) {
+                parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.EXACTLY);
+            }
+        } else {
+            if (weighted && childHeight == 0 && MeasureSpec.getMode(parentHeightMeasureSpec) != MeasureSpec.EXACTLY) {
+                childHeight = ViewGroup.LayoutParams.WRAP_CONTENT;
+            }
+            if (lp.width == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentWidthMeasureSpec) == MeasureSpec.AT_MOST) {
+                parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.EXACTLY);
+            }
+            // 因为垂直滚动，所以高度模式不指定，便于子视图任意扩展高度
+            parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.UNSPECIFIED);
         }
 
-        return findFocusableViewInBounds(leftFocus, leftWithoutFadingEdge, rightWithoutFadingEdge);
+        outSpecs[0] = getChildMeasureSpec(parentWidthMeasureSpec,
+                getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin
+                        + widthUsed, childWidth);
+        outSpecs[1] = getChildMeasureSpec(parentHeightMeasureSpec,
+                getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin
+                        + heightUsed, childHeight);
     }
 
     /**
-     * <p>
-     * Finds the next focusable component that fits in the specified bounds.
-     * </p>
+     * 非滚动方向尺寸不确定时填充父容器的子视图的首次测量。这类子视图随后会以统一尺寸再次测量，
+     * 单条缓存只能记住第二次测量，因此单独记录首次测量的规格及结果：两次测量的规格均未变化时不再测量，
+     * 直接取用记录的首次测量结果
      *
-     * @param startFocus look for a candidate is the one at the top of the bounds
-     *                   if topFocus is true, or at the bottom of the bounds if topFocus is
-     *                   false
-     * @param start      the top offset of the bounds in which a focusable must be
-     *                   found
-     * @param end        the bottom offset of the bounds in which a focusable must
-     *                   be found
-     * @return the next focusable component in the bounds or null if none can
-     * be found
+     * @param outSizes 输出首次测量结果的宽度及高度，包含测量状态
      */
-    private View findFocusableViewInBounds(boolean startFocus, int start, int end) {
-        final boolean horizontal = getOrientation() == HORIZONTAL;
-        List<View> focusables = getFocusables(View.FOCUS_FORWARD);
-        View focusCandidate = null;
-
-        /*
-         * A fully contained focusable is one where its top is below the bound's
-         * top, and its bottom is above the bound's bottom. A partially
-         * contained focusable is one where some part of it is within the
-         * bounds, but it also has some part that is not within bounds.  A fully contained
-         * focusable is preferred to a partially contained focusable.
-         */
-        boolean foundFullyContainedFocusable = false;
-
-        for (int i = 0, count = focusables.size(); i < count; i++) {
-            View view = focusables.get(i);
-            int viewLeft = view.getLeft();
-            int viewRight = view.getRight();
-            int viewTop = view.getTop();
-            int viewBottom = view.getBottom();
-
-            if (horizontal && start < viewRight && viewLeft < end) {
-                /*
-                 * the focusable is in the target area, it is a candidate for
-                 * focusing
-                 */
-                final boolean viewIsFullyContained = (start < viewLeft) && (viewRight < end);
-
-                if (focusCandidate == null) {
-                    /* No candidate, take this one */
-                    focusCandidate = view;
-                    foundFullyContainedFocusable = viewIsFullyContained;
-                } else {
-                    final boolean viewIsCloserToBoundary =
-                            (startFocus && viewLeft < focusCandidate.getLeft()) ||
-                                    (!startFocus && viewRight > focusCandidate.getRight());
-
-                    if (foundFullyContainedFocusable) {
-                        if (viewIsFullyContained && viewIsCloserToBoundary) {
-                            /*
-                             * We're dealing with only fully contained views, so
-                             * it has to be closer to the boundary to beat our
-                             * candidate
-                             */
-                            focusCandidate = view;
-                        }
-                    } else {
-                        if (viewIsFullyContained) {
-                            /* Any fully contained view beats a partially contained view */
-                            focusCandidate = view;
-                            foundFullyContainedFocusable = true;
-                        } else if (viewIsCloserToBoundary) {
-                            /*
-                             * Partially contained view beats another partially
-                             * contained view if it's closer
-                             */
-                            focusCandidate = view;
-                        }
-                    }
-                }
-            } else if (!horizontal && start < viewBottom && viewTop < end) {
-                /*
-                 * the focusable is in the target area, it is a candidate for
-                 * focusing
-                 */
-                final boolean viewIsFullyContained = (start < viewTop) && (viewBottom < end);
-
-                if (focusCandidate == null) {
-                    /* No candidate, take this one */
-                    focusCandidate = view;
-                    foundFullyContainedFocusable = viewIsFullyContained;
-                } else {
-                    final boolean viewIsCloserToBoundary =
-                            (startFocus && viewTop < focusCandidate.getTop())
-                                    || (!startFocus && viewBottom > focusCandidate.getBottom());
+    private void measureUniformChildFirstPass(View child, int widthMeasureSpec, int heightMeasureSpec, int[] outSizes) {
+        final int[] specs = mTempMeasureSpecs;
+        makeScrollableChildMeasureSpecs(child, widthMeasureSpec, 0, heightMeasureSpec, 0, specs);
+        final ViewGroup.LayoutParams params = child.getLayoutParams();
+        if (!(params instanceof LayoutParams)) {
+            child.measure(specs[0], specs[1]);
+            outSizes[0] = child.getMeasuredWidthAndState();
+            outSizes[1] = child.getMeasuredHeightAndState();
+            return;
+        }
+        final LayoutParams lp = (LayoutParams) params;
+        if (lp.mFirstPassCached && lp.mMeasureCached && !child.isLayoutRequested()
+                && lp.mFirstPassWidthMeasureSpec == specs[0]
+                && lp.mFirstPassHeightMeasureSpec == specs[1]
+                // 第二次测量之后子视图未被以其他规格测量过
+                && lp.mCachedMeasuredWidth == child.getMeasuredWidthAndState()
+                && lp.mCachedMeasuredHeight == child.getMeasuredHeightAndState()) {
+            mMeasureCacheHitCount++;
+        } else {
+            measureChildWithCache(child, specs[0], specs[1]);
+            lp.mFirstPassCached = true;
+            lp.mFirstPassWidthMeasureSpec = specs[0];
+            lp.mFirstPassHeightMeasureSpec = specs[1];
+            lp.mFirstPassMeasuredWidth = child.getMeasuredWidthAndState();
+            lp.mFirstPassMeasuredHeight = child.getMeasuredHeightAndState();
+        }
+        outSizes[0] = lp.mFirstPassMeasuredWidth;
+        outSizes[1] = lp.mFirstPassMeasuredHeight;
+    }
 
-                    if (foundFullyContainedFocusable) {
-                        if (viewIsFullyContained && viewIsCloserToBoundary) {
-                            /*
-                             * We're dealing with only fully contained views, so
-                             * it has to be closer to the boundary to beat our
-                             * candidate
-                             */
-                            focusCandidate = view;
-                        }
-                    } else {
-                        if (viewIsFullyContained) {
-                            /* Any fully contained view beats a partially contained view */
-                            focusCandidate = view;
-                            foundFullyContainedFocusable = true;
-                        } else if (viewIsCloserToBoundary) {
-                            /*
-                             * Partially contained view beats another partially
-                             * contained view if it's closer
-                             */
-                            focusCandidate = view;
-                        }
-                    }
-                }
-            }
+    /**
+     * 测量子视图，子视图未请求重新布局、测量规格及测量结果均与上次一致时直接复用上次的测量结果
+     */
+    private void measureChildWithCache(View child, int childWidthMeasureSpec, int childHeightMeasureSpec) {
+        final ViewGroup.LayoutParams params = child.getLayoutParams();
+        if (!(params instanceof LayoutParams)) {
+            child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+            return;
         }
+        final LayoutParams lp = (LayoutParams) params;
+        if (lp.mMeasureCached && !child.isLayoutRequested()
+                && lp.mCachedWidthMeasureSpec == childWidthMeasureSpec
+                && lp.mCachedHeightMeasureSpec == childHeightMeasureSpec
+                // 父类可能以其他规格直接测量过子视图，此时测量结果不再可信
+                && lp.mCachedMeasuredWidth == child.getMeasuredWidthAndState()
+                && lp.mCachedMeasuredHeight == child.getMeasuredHeightAndState()) {
+            mMeasureCacheHitCount++;
+            return;
+        }
+        mMeasureCacheMissCount++;
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        lp.mMeasureCached = true;
+        lp.mCachedWidthMeasureSpec = childWidthMeasureSpec;
+        lp.mCachedHeightMeasureSpec = childHeightMeasureSpec;
+        lp.mCachedMeasuredWidth = child.getMeasuredWidthAndState();
+        lp.mCachedMeasuredHeight = child.getMeasuredHeightAndState();
+    }
 
-        return focusCandidate;
+    /**
+     * @return 可滚动模式下子视图测量缓存的命中次数
+     */
+    public int getMeasureCacheHitCount() {
+        return mMeasureCacheHitCount;
     }
 
     /**
-     * <p>Handles scrolling in response to a "page up/down" shortcut press. This
-     * method will scroll the view by one page up or down and give the focus
-     * to the topmost/bottommost component in the new visible area. If no
-     * component is a good candidate for focus, this scrollview reclaims the
-     * focus.</p>
-     *
-     * @param direction the scroll direction: {@link android.view.View#FOCUS_UP}
-     *                  to go one page up or
-     *                  {@link android.view.View#FOCUS_DOWN} to go one page down
-     * @return true if the key event is consumed by this method, false otherwise
+     * @return 可滚动模式下子视图测量缓存的未命中次数，即实际执行测量的次数
      */
-    public boolean pageScroll(int direction) {
-        final boolean horizontal = getOrientation() == HORIZONTAL;
-        if (horizontal && (direction == View.FOCUS_UP || direction == View.FOCUS_DOWN)) {
-            return false;
-        } else if (!horizontal && (direction == View.FOCUS_LEFT || direction == View.FOCUS_RIGHT)) {
-            return false;
-        }
+    public int getMeasureCacheMissCount() {
+        return mMeasureCacheMissCount;
+    }
 
-        int width = getWidth();
-        int height = getHeight();
+    /**
+     * 重置子视图测量缓存的命中统计
+     */
+    public void resetMeasureCacheStats() {
+        mMeasureCacheHitCount = 0;
+        mMeasureCacheMissCount = 0;
+    }
 
-        if (direction == View.FOCUS_RIGHT) {
-            mTempRect.left = getScrollX() + width;
-            int count = getChildCount();
-            if (count > 0) {
-                View view = getChildAt(count - 1);
-                MarginLayoutParams lp = (MarginLayoutParams) view.getLayoutParams();
-                int right = view.getRight() + lp.rightMargin + getPaddingRight();
-                if (mTempRect.left + width > right) {
-                    mTempRect.left = right - width;
-                }
-            }
-        } else if (direction == View.FOCUS_LEFT) {
-            mTempRect.left = getScrollX() - width;
-            if (mTempRect.left < 0) {
-                mTempRect.left = 0;
-            }
-        } else if (direction == View.FOCUS_DOWN) {
-            mTempRect.top = getScrollY() + height;
-            int count = getChildCount();
-            if (count > 0) {
-                View view = getChildAt(count - 1);
-                MarginLayoutParams lp = (MarginLayoutParams) view.getLayoutParams();
-                int bottom = view.getBottom() + lp.bottomMargin + getPaddingBottom();
-                if (mTempRect.top + height > bottom) {
-                    mTempRect.top = bottom - height;
-                }
-            }
-        } else {
-            mTempRect.top = getScrollY() - height;
-            if (mTempRect.top < 0) {
-                mTempRect.top = 0;
-            }
-        }
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
 
-        if (horizontal) {
-            mTempRect.right = mTempRect.left + width;
-            return scrollAndFocus(direction, mTempRect.left, mTempRect.right);
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        if (getOrientation() == HORIZONTAL) {
+            return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
         } else {
-            mTempRect.bottom = mTempRect.top + height;
-            return scrollAndFocus(direction, mTempRect.top, mTempRect.bottom);
+            return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
         }
     }
 
-    /**
-     * <p>Handles scrolling in response to a "home/end" shortcut press. This
-     * method will scroll the view to the top or bottom and give the focus
-     * to the topmost/bottommost component in the new visible area. If no
-     * component is a good candidate for focus, this scrollview reclaims the
-     * focus.</p>
-     *
-     * @param direction the scroll direction: {@link android.view.View#FOCUS_UP}
-     *                  to go the top of the view or
-     *                  {@link android.view.View#FOCUS_DOWN} to go the bottom
-     * @return true if the key event is consumed by this method, false otherwise
-     */
-    public boolean fullScroll(int direction) {
-        final boolean horizontal = getOrientation() == HORIZONTAL;
-        if (horizontal && (direction == View.FOCUS_UP || direction == View.FOCUS_DOWN)) {
-            return false;
-        } else if (!horizontal && (direction == View.FOCUS_LEFT || direction == View.FOCUS_RIGHT)) {
-            return false;
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams lp) {
+        if (lp instanceof LinearLayout.LayoutParams) {
+            return new LayoutParams((LinearLayout.LayoutParams) lp);
+        } else if (lp instanceof MarginLayoutParams) {
+            return new LayoutParams((MarginLayoutParams) lp);
         }
+        return new LayoutParams(lp);
+    }
 
-        int width = getWidth();
-        int height = getHeight();
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
 
-        mTempRect.left = 0;
-        mTempRect.right = width;
-        mTempRect.top = 0;
-        mTempRect.bottom = height;
+    private static int modifyMeasureSpecMode(int spec, int mode) {
+        return MeasureSpec.makeMeasureSpec(MeasureSpec.getSize(spec), mode);
+    }
 
-        if (direction == View.FOCUS_DOWN) {
-            int count = getChildCount();
-            if (count > 0) {
-                View view = getChildAt(count - 1);
-                MarginLayoutParams lp = (MarginLayoutParams) view.getLayoutParams();
-                mTempRect.bottom = view.getBottom() + lp.bottomMargin + getPaddingBottom();
-                mTempRect.top = mTempRect.bottom - height;
-            }
-        } else if (direction == View.FOCUS_RIGHT) {
-            int count = getChildCount();
-            if (count > 0) {
-                View view = getChildAt(count - 1);
-                MarginLayoutParams lp = (MarginLayoutParams) view.getLayoutParams();
-                mTempRect.right = view.getRight() + lp.rightMargin + getPaddingRight();
-                mTempRect.left = mTempRect.right - width;
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mBoundaryWidthMeasureSpec = widthMeasureSpec;
+        mBoundaryHeightMeasureSpec = heightMeasureSpec;
+        mBoundaryLayoutParams = getLayoutParams();
+        fillBoundaryLayoutParamValues(mBoundaryLayoutParamValues);
+        if (mAdapter != null || !mScrollable) {
+            mScrollAxisMeasured = false;
+        }
+        if (mAdapter == null) {
+            if (mScrollable) {
+                if (!measureScrollAxisIncrementally(widthMeasureSpec, heightMeasureSpec)) {
+                    measureScrollAxis(widthMeasureSpec, heightMeasureSpec);
+                }
+            } else {
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
             }
+            return;
         }
+        mVirtualWidthMeasureSpec = widthMeasureSpec;
+        mVirtualHeightMeasureSpec = heightMeasureSpec;
 
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int mainSpec = horizontal ? widthMeasureSpec : heightMeasureSpec;
+        final int mainPadding = horizontal ? getPaddingLeft() + getPaddingRight() : getPaddingTop() + getPaddingBottom();
+        final int crossPadding = horizontal ? getPaddingTop() + getPaddingBottom() : getPaddingLeft() + getPaddingRight();
+        // 滚动方向上不限制尺寸时无法确定视口，只能展示全部条目
+        final int viewportLength = MeasureSpec.getMode(mainSpec) == MeasureSpec.UNSPECIFIED
+                ? Integer.MAX_VALUE / 4 : Math.max(0, MeasureSpec.getSize(mainSpec) - mainPadding);
+        fillVirtualWindow(viewportLength, true);
+
+        int maxCrossExtent = 0;
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            final int crossExtent = horizontal
+                    ? child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin
+                    : child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+            maxCrossExtent = Math.max(maxCrossExtent, crossExtent);
+        }
+        final int mainSize = mainPadding + mItemExtents.getTotal();
+        final int crossSize = crossPadding + maxCrossExtent;
         if (horizontal) {
-            return scrollAndFocus(direction, mTempRect.left, mTempRect.right);
+            setMeasuredDimension(resolveSize(Math.max(mainSize, getSuggestedMinimumWidth()), widthMeasureSpec),
+                    resolveSize(Math.max(crossSize, getSuggestedMinimumHeight()), heightMeasureSpec));
         } else {
-            return scrollAndFocus(direction, mTempRect.top, mTempRect.bottom);
+            setMeasuredDimension(resolveSize(Math.max(crossSize, getSuggestedMinimumWidth()), widthMeasureSpec),
+                    resolveSize(Math.max(mainSize, getSuggestedMinimumHeight()), heightMeasureSpec));
         }
     }
 
     /**
-     * <p>Scrolls the view to make the area defined by <code>top</code> and
-     * <code>bottom</code> visible. This method attempts to give the focus
-     * to a component visible in this area. If no component can be focused in
-     * the new visible area, the focus is reclaimed by this ScrollView.</p>
+     * 根据当前滚动位置更新虚拟化模式下的子视图：添加进入窗口的条目，回收离开窗口的条目。
+     * 窗口之前的条目实际长度与预估长度不一致时，同步修正滚动位置使可见内容保持不动
      *
-     * @param direction the scroll direction: {@link android.view.View#FOCUS_UP}
-     *                  to go upward, {@link android.view.View#FOCUS_DOWN} to downward
-     * @param start     the top offset of the new area to be made visible
-     * @param end       the bottom offset of the new area to be made visible
-     * @return true if the key event is consumed by this method, false otherwise
+     * @param viewportLength 滚动方向上的视口长度
+     * @param measuring      是否处于测量阶段，测量阶段会重新测量窗口内所有条目，布局交由随后的布局流程处理
      */
-    private boolean scrollAndFocus(int direction, int start, int end) {
-        final boolean horizontal = getOrientation() == HORIZONTAL;
-
-        boolean handled = true;
+    private void fillVirtualWindow(int viewportLength, boolean measuring) {
+        if (mInVirtualFill) {
+            return;
+        }
+        mInVirtualFill = true;
 
-        int containerStart = horizontal ? getScrollX() : getScrollY();
-        int containerEnd = containerStart + (horizontal ? getWidth() : getHeight());
-        boolean up = (horizontal && direction == View.FOCUS_LEFT) || (!horizontal && direction == View.FOCUS_UP);
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int count = mItemExtents.getCount();
+        final int scroll = Math.max(0, horizontal ? getScrollX() : getScrollY());
+        final int margin = mVirtualWindowMargin >= 0 ? mVirtualWindowMargin : viewportLength / 2;
+        final int windowStart = scroll - margin;
+        final int windowEnd = scroll + viewportLength + margin;
+
+        // 尚未获得预估长度时所有条目长度均为0，只能从头开始
+        final int first = mItemExtentEstimate > 0 ? mItemExtents.indexAtOffset(windowStart) : 0;
+        int last = first - 1;
+        int anchorDelta = 0;
+        for (int i = first; i >= 0 && i < count && mItemExtents.getOffset(i) < windowEnd; i++) {
+            View child = mAttachedItems.get(i);
+            if (child == null || measuring) {
+                if (child == null) {
+                    child = attachItemView(i);
+                }
+                measureScrollableChildWithMargins(child, mVirtualWidthMeasureSpec, 0, mVirtualHeightMeasureSpec, 0);
+                final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+                final int extent = horizontal
+                        ? child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin
+                        : child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+                final int offset = mItemExtents.getOffset(i);
+                final int delta = mItemExtents.setExtent(i, extent);
+                if (delta != 0) {
+                    mContentExtentValid = false;
+                    if (offset < scroll) {
+                        anchorDelta += delta;
+                    }
+                }
+                if (mItemExtentEstimate == 0 && extent > 0) {
+                    mItemExtentEstimate = extent;
+                    mItemExtents.reestimate(extent);
+                    mContentExtentValid = false;
+                }
+            }
+            last = i;
+        }
 
-        View newFocused = findFocusableViewInBounds(up, start, end);
-        if (newFocused == null) {
-            newFocused = this;
+        for (int i = mAttachedItems.size() - 1; i >= 0; i--) {
+            final int position = mAttachedItems.keyAt(i);
+            if ((position < first || position > last) && !mAttachedItems.valueAt(i).hasFocus()) {
+                recycleItemView(i);
+            }
         }
 
-        if (start >= containerStart && end <= containerEnd) {
-            handled = false;
-        } else {
-            int delta = up ? (start - containerStart) : (end - containerEnd);
+        if (anchorDelta != 0) {
             if (horizontal) {
-                doScroll(delta, 0);
+                super.scrollTo(Math.max(0, getScrollX() + anchorDelta), getScrollY());
             } else {
-                doScroll(0, delta);
+                super.scrollTo(getScrollX(), Math.max(0, getScrollY() + anchorDelta));
             }
         }
+        if (!measuring) {
+            layoutItemViews();
+            if (!mContentExtentValid) {
+                updateContentExtentCache();
+            }
+            invalidate();
+            correctSnapTarget();
+        }
+        mInVirtualFill = false;
+    }
 
-        if (newFocused != findFocus()) newFocused.requestFocus(direction);
-
-        return handled;
+    private View attachItemView(int position) {
+        final int viewType = mAdapter.getItemViewType(position);
+        View child = takePrefetchedItem(position, viewType);
+        final ViewGroup.LayoutParams lp;
+        if (child != null) {
+            // 预取时已经绑定并测量，测量缓存依然有效
+            lp = child.getLayoutParams();
+        } else {
+            child = obtainItemView(position, viewType);
+            lp = child.getLayoutParams();
+        }
+        mAttachedItems.put(position, child);
+        mAttachedItemTypes.put(position, viewType);
+        addViewInLayout(child, mAttachedItems.indexOfKey(position), lp, true);
+        return child;
     }
 
     /**
-     * Handle scrolling in response to an up or down arrow click.
-     *
-     * @param direction The direction corresponding to the arrow key that was
-     *                  pressed
-     * @return True if we consumed the event, false otherwise
+     * 从缓存池或适配器获取条目视图并绑定数据，布局参数转换为本容器的布局参数
      */
-    public boolean arrowScroll(int direction) {
-        final boolean horizontal = getOrientation() == HORIZONTAL;
-
-        View currentFocused = findFocus();
-        if (currentFocused == this) currentFocused = null;
-
-        View nextFocused = FocusFinder.getInstance().findNextFocus(this, currentFocused, direction);
-
-        final int maxJump = getMaxScrollAmount();
+    private View obtainItemView(int position, int viewType) {
+        View child = mItemViewPool.get(viewType);
+        if (child == null) {
+            child = mAdapter.onCreateView(this, viewType);
+        }
+        mAdapter.onBindView(child, position);
 
-        if (nextFocused != null && isWithinDeltaOfScreen(nextFocused, maxJump, getHeight(), getWidth())) {
-            nextFocused.getDrawingRect(mTempRect);
-            offsetDescendantRectToMyCoords(nextFocused, mTempRect);
-            int scrollDeltaX = 0, scrollDeltaY = 0;
-            if (horizontal) {
-                scrollDeltaX = computeScrollDeltaToGetChildRectOnScreen(mTempRect);
-            } else {
-                scrollDeltaY = computeScrollDeltaToGetChildRectOnScreen(mTempRect);
-            }
-            doScroll(scrollDeltaX, scrollDeltaY);
-            nextFocused.requestFocus(direction);
-        } else {
-            // no new focus
-            int scrollDelta = maxJump;
+        ViewGroup.LayoutParams lp = child.getLayoutParams();
+        if (lp == null) {
+            lp = generateDefaultLayoutParams();
+        } else if (!checkLayoutParams(lp)) {
+            lp = generateLayoutParams(lp);
+        }
+        // 复用的视图重新绑定了数据，上次的测量结果不再可用
+        ((LayoutParams) lp).mMeasureCached = false;
+        child.setLayoutParams(lp);
+        return child;
+    }
 
-            if (horizontal) {
-                if (direction == View.FOCUS_LEFT && getScrollX() < scrollDelta) {
-                    scrollDelta = getScrollX();
-                } else if (direction == View.FOCUS_RIGHT && getChildCount() > 0) {
-                    View lastView = getChildAt(getChildCount() - 1);
-                    MarginLayoutParams lp = (MarginLayoutParams) lastView.getLayoutParams();
-                    int daRight = lastView.getRight() + lp.rightMargin;
-                    int screenRight = getScrollX() + getWidth() - getPaddingRight();
-                    scrollDelta = Math.min(daRight - screenRight, maxJump);
-                }
-                if (scrollDelta == 0) {
-                    return false;
-                }
-                doScroll(direction == View.FOCUS_RIGHT ? scrollDelta : -scrollDelta, 0);
-            } else {
-                if (direction == View.FOCUS_UP && getScrollY() < scrollDelta) {
-                    scrollDelta = getScrollY();
-                } else if (direction == View.FOCUS_DOWN && getChildCount() > 0) {
-                    View lastView = getChildAt(getChildCount() - 1);
-                    MarginLayoutParams lp = (MarginLayoutParams) lastView.getLayoutParams();
-                    int daBottom = lastView.getBottom() + lp.bottomMargin;
-                    int screenBottom = getScrollY() + getHeight() - getPaddingBottom();
-                    scrollDelta = Math.min(daBottom - screenBottom, maxJump);
-                }
-                if (scrollDelta == 0) {
-                    return false;
-                }
-                doScroll(0, direction == View.FOCUS_DOWN ? scrollDelta : -scrollDelta);
-            }
+    @Nullable
+    private View takePrefetchedItem(int position, int viewType) {
+        final int index = mPrefetchedItems.indexOfKey(position);
+        if (index < 0) {
+            return null;
         }
+        final View child = mPrefetchedItems.valueAt(index);
+        final int prefetchedType = mPrefetchedItemTypes.get(position);
+        mPrefetchedItems.removeAt(index);
+        mPrefetchedItemTypes.delete(position);
+        if (prefetchedType != viewType) {
+            mItemViewPool.put(prefetchedType, child);
+            return null;
+        }
+        return child;
+    }
 
-        if (currentFocused != null && currentFocused.isFocused() && isOffScreen(currentFocused)) {
-            // previously focused item still has focus and is off screen, give
-            // it up (take it back to ourselves)
-            // (also, need to temporarily force FOCUS_BEFORE_DESCENDANTS so we are
-            // sure to
-            // get it)
-            final int descendantFocusability = getDescendantFocusability();  // save
-            setDescendantFocusability(ViewGroup.FOCUS_BEFORE_DESCENDANTS);
-            requestFocus();
-            setDescendantFocusability(descendantFocusability);  // restore
+    /**
+     * 惯性滑动开始时记录预计终点，虚拟化模式下开始预取
+     */
+    private void startFlingPrefetch() {
+        if (mAdapter == null || mScroller.isFinished()) {
+            return;
         }
-        return true;
+        final int finalScroll = getOrientation() == HORIZONTAL ? mScroller.getFinalX() : mScroller.getFinalY();
+        mPrefetchFinalScroll = Math.max(0, Math.min(finalScroll, getScrollRange()));
+        if (mFrameIntervalNanos == 0) {
+            mFrameIntervalNanos = resolveFrameIntervalNanos();
+        }
+        mPrefetchActive = true;
     }
 
     /**
-     * @return whether the descendant of this scroll view is scrolled off
-     * screen.
+     * 每帧计算滚动位置时调用，在本帧绘制完成后执行预取
      */
-    private boolean isOffScreen(View descendant) {
-        return !isWithinDeltaOfScreen(descendant, 0, getHeight(), getWidth());
+    private void schedulePrefetch() {
+        if (!mPrefetchActive || mPrefetchScheduled) {
+            return;
+        }
+        mPrefetchScheduled = true;
+        mPrefetchFrameStartNanos = TimeUnit.MILLISECONDS.toNanos(getDrawingTime());
+        post(mPrefetchRunnable);
     }
 
     /**
-     * @return whether the descendant of this scroll view is within delta
-     * pixels of being on the screen.
+     * 停止预取，尚未使用的预取条目放回缓存池
      */
-    private boolean isWithinDeltaOfScreen(View descendant, int delta, int height, int width) {
-        descendant.getDrawingRect(mTempRect);
-        offsetDescendantRectToMyCoords(descendant, mTempRect);
+    private void stopFlingPrefetch() {
+        mPrefetchActive = false;
+        if (mPrefetchScheduled) {
+            mPrefetchScheduled = false;
+            removeCallbacks(mPrefetchRunnable);
+        }
+        for (int i = 0, size = mPrefetchedItems.size(); i < size; i++) {
+            mItemViewPool.put(mPrefetchedItemTypes.valueAt(i), mPrefetchedItems.valueAt(i));
+        }
+        mPrefetchedItems.clear();
+        mPrefetchedItemTypes.clear();
+    }
 
-        if (getOrientation() == HORIZONTAL) {
-            return (mTempRect.right + delta) >= getScrollX()
-                    && (mTempRect.left - delta) <= (getScrollX() + width);
+    /**
+     * 在本帧剩余的时间内，沿滑动方向预取当前窗口之外一屏以内、且不超过预计终点窗口的条目
+     */
+    private void prefetchItems() {
+        mPrefetchScheduled = false;
+        if (!mPrefetchActive || mAdapter == null || mScroller.isFinished()) {
+            stopFlingPrefetch();
+            return;
+        }
+        final int count = mItemExtents.getCount();
+        if (count == 0) {
+            return;
+        }
+        final long deadline = mPrefetchFrameStartNanos + mFrameIntervalNanos;
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int scroll = horizontal ? getScrollX() : getScrollY();
+        final int viewportLength = getViewportLength();
+        final int margin = mVirtualWindowMargin >= 0 ? mVirtualWindowMargin : viewportLength / 2;
+        final boolean forward = mPrefetchFinalScroll >= scroll;
+
+        if (forward) {
+            final int limit = Math.min(scroll + viewportLength * 2 + margin,
+                    mPrefetchFinalScroll + viewportLength + margin);
+            int position = mAttachedItems.size() > 0
+                    ? mAttachedItems.keyAt(mAttachedItems.size() - 1) + 1
+                    : Math.max(0, mItemExtents.indexAtOffset(scroll));
+            for (; position < count && mItemExtents.getOffset(position) < limit; position++) {
+                if (!prefetchItem(position, deadline)) {
+                    return;
+                }
+            }
         } else {
-            return (mTempRect.bottom + delta) >= getScrollY()
-                    && (mTempRect.top - delta) <= (getScrollY() + height);
+            final int limit = Math.max(scroll - viewportLength - margin, mPrefetchFinalScroll - margin);
+            int position = mAttachedItems.size() > 0
+                    ? mAttachedItems.keyAt(0) - 1
+                    : mItemExtents.indexAtOffset(scroll);
+            for (; position >= 0 && mItemExtents.getOffset(position + 1) > limit; position--) {
+                if (!prefetchItem(position, deadline)) {
+                    return;
+                }
+            }
         }
-
     }
 
     /**
-     * Smooth scroll by a Y delta
-     *
-     * @param deltaY the number of pixels to scroll by on the Y axis
+     * @return 剩余时间不足时返回false，停止本帧的预取
      */
-    private void doScroll(int deltaX, int deltaY) {
-        if (deltaX != 0 || deltaY != 0) {
-            if (mSmoothScrollingEnabled) {
-                smoothScrollBy(deltaX, deltaY);
-            } else {
-                scrollBy(deltaX, deltaY);
+    private boolean prefetchItem(int position, long deadline) {
+        if (mAttachedItems.indexOfKey(position) >= 0 || mPrefetchedItems.indexOfKey(position) >= 0) {
+            return true;
+        }
+        final long start = System.nanoTime();
+        if (start + mAverageItemPrepareNanos > deadline) {
+            return false;
+        }
+        final int viewType = mAdapter.getItemViewType(position);
+        final View child = obtainItemView(position, viewType);
+        measureScrollableChildWithMargins(child, mVirtualWidthMeasureSpec, 0, mVirtualHeightMeasureSpec, 0);
+        // 预先布局一次以清除子视图的重新布局标记，添加到容器时测量缓存才能命中
+        child.layout(0, 0, child.getMeasuredWidth(), child.getMeasuredHeight());
+        mPrefetchedItems.put(position, child);
+        mPrefetchedItemTypes.put(position, viewType);
+
+        final long cost = System.nanoTime() - start;
+        mAverageItemPrepareNanos = mAverageItemPrepareNanos == 0 ? cost : (mAverageItemPrepareNanos * 3 + cost) / 4;
+        return true;
+    }
+
+    private long resolveFrameIntervalNanos() {
+        float refreshRate = 60f;
+        final WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        if (windowManager != null) {
+            final float displayRefreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+            if (displayRefreshRate >= 30f) {
+                refreshRate = displayRefreshRate;
             }
         }
+        return (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate);
     }
 
     /**
-     * Like {@link View#scrollBy}, but scroll smoothly instead of immediately.
-     *
-     * @param dx the number of pixels to scroll by on the X axis
-     * @param dy the number of pixels to scroll by on the Y axis
+     * @param index 条目在已添加条目中的下标，与子视图下标一致
      */
-    public final void smoothScrollBy(int dx, int dy) {
-        smoothScrollBy(dx, dy, DEFAULT_SMOOTH_SCROLL_DURATION, false);
+    private void recycleItemView(int index) {
+        final int position = mAttachedItems.keyAt(index);
+        final View child = mAttachedItems.valueAt(index);
+        removeViewInLayout(child);
+        mAttachedItems.removeAt(index);
+        mItemViewPool.put(mAttachedItemTypes.get(position), child);
+        mAttachedItemTypes.delete(position);
     }
 
     /**
-     * Like {@link View#scrollBy}, but scroll smoothly instead of immediately.
-     *
-     * @param dx               the number of pixels to scroll by on the X axis
-     * @param dy               the number of pixels to scroll by on the Y axis
-     * @param scrollDurationMs the duration of the smooth scroll operation in milliseconds
+     * 按照各条目在滚动方向上的偏移布局虚拟化模式下的子视图
      */
-    public final void smoothScrollBy(int dx, int dy, int scrollDurationMs) {
-        smoothScrollBy(dx, dy, scrollDurationMs, false);
+    private void layoutItemViews() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int paddingLeft = getPaddingLeft();
+        final int paddingTop = getPaddingTop();
+        final int crossSpace = horizontal
+                ? getHeight() - paddingTop - getPaddingBottom()
+                : getWidth() - paddingLeft - getPaddingRight();
+        for (int i = 0, size = mAttachedItems.size(); i < size; i++) {
+            final View child = mAttachedItems.valueAt(i);
+            final int offset = mItemExtents.getOffset(mAttachedItems.keyAt(i));
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int width = child.getMeasuredWidth();
+            final int height = child.getMeasuredHeight();
+            final int left;
+            final int top;
+            if (horizontal) {
+                left = paddingLeft + offset + lp.leftMargin;
+                top = getChildCrossStart(lp, height, true, crossSpace);
+            } else {
+                left = getChildCrossStart(lp, width, false, crossSpace);
+                top = paddingTop + offset + lp.topMargin;
+            }
+            child.layout(left, top, left + width, top + height);
+        }
     }
 
-
     /**
-     * Like {@link View#scrollBy}, but scroll smoothly instead of immediately.
+     * 计算子视图在非滚动方向上的起始位置（不含外边距），子视图未指定对齐方式时使用容器的对齐方式
      *
-     * @param dx                  the number of pixels to scroll by on the X axis
-     * @param dy                  the number of pixels to scroll by on the Y axis
-     * @param scrollDurationMs    the duration of the smooth scroll operation in milliseconds
-     * @param withNestedScrolling whether to include nested scrolling operations.
+     * @param lp         子视图布局参数
+     * @param childSize  子视图在非滚动方向上的尺寸
+     * @param horizontal 是否水平方向
+     * @param crossSpace 非滚动方向上去除内边距后的可用尺寸
+     * @return 水平方向时为子视图顶部位置，垂直方向时为子视图左侧位置
      */
-    private void smoothScrollBy(int dx, int dy, int scrollDurationMs, boolean withNestedScrolling) {
-        if (getChildCount() == 0) {
-            // Nothing to do.
-            return;
-        }
-        long duration = AnimationUtils.currentAnimationTimeMillis() - mLastScroll;
-        if (duration > ANIMATED_SCROLL_GAP) {
-            if (getOrientation() == HORIZONTAL) {
-                int childrenWidth = getChildContentWidth();
-                int parentWidthSpace = getWidth() - getPaddingRight() - getPaddingLeft();
-                final int scrollX = getScrollX();
-                final int maxX = Math.max(0, childrenWidth - parentWidthSpace);
-                dx = Math.max(0, Math.min(scrollX + dx, maxX)) - scrollX;
-                mScroller.startScroll(scrollX, getScrollY(), dx, 0, scrollDurationMs);
-            } else {
-                int childrenHeight = getChildContentHeight();
-                int parentHeightSpace = getHeight() - getPaddingTop() - getPaddingBottom();
-                final int scrollY = getScrollY();
-                final int maxY = Math.max(0, childrenHeight - parentHeightSpace);
-                dy = Math.max(0, Math.min(scrollY + dy, maxY)) - scrollY;
-                mScroller.startScroll(getScrollX(), scrollY, 0, dy, scrollDurationMs);
+    private int getChildCrossStart(LayoutParams lp, int childSize, boolean horizontal, int crossSpace) {
+        final int gravity = lp.gravity < 0 ? mGravity : lp.gravity;
+        if (horizontal) {
+            final int paddingTop = getPaddingTop();
+            switch (gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+                case Gravity.CENTER_VERTICAL:
+                    return paddingTop + (crossSpace - childSize) / 2 + lp.topMargin - lp.bottomMargin;
+                case Gravity.BOTTOM:
+                    return paddingTop + crossSpace - childSize - lp.bottomMargin;
+                default:
+                    return paddingTop + lp.topMargin;
             }
-
-            runAnimatedScroll(withNestedScrolling);
         } else {
-            if (!mScroller.isFinished()) {
-                abortAnimatedScroll();
+            final int paddingLeft = getPaddingLeft();
+            switch (gravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+                case Gravity.CENTER_HORIZONTAL:
+                    return paddingLeft + (crossSpace - childSize) / 2 + lp.leftMargin - lp.rightMargin;
+                case Gravity.RIGHT:
+                    return paddingLeft + crossSpace - childSize - lp.rightMargin;
+                default:
+                    return paddingLeft + lp.leftMargin;
             }
-            scrollBy(dx, dy);
         }
-        mLastScroll = AnimationUtils.currentAnimationTimeMillis();
     }
 
-    /**
-     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
-     *
-     * @param x the position where to scroll on the X axis
-     * @param y the position where to scroll on the Y axis
-     */
-    public final void smoothScrollTo(int x, int y) {
-        smoothScrollTo(x, y, DEFAULT_SMOOTH_SCROLL_DURATION, false);
+    @Override
+    public void setGravity(int gravity) {
+        super.setGravity(gravity);
+        mGravity = gravity;
+    }
+
+    @Override
+    public void setHorizontalGravity(int horizontalGravity) {
+        super.setHorizontalGravity(horizontalGravity);
+        mGravity = (mGravity & ~Gravity.RELATIVE_HORIZONTAL_GRAVITY_MASK)
+                | (horizontalGravity & Gravity.RELATIVE_HORIZONTAL_GRAVITY_MASK);
+    }
+
+    @Override
+    public void setVerticalGravity(int verticalGravity) {
+        super.setVerticalGravity(verticalGravity);
+        mGravity = (mGravity & ~Gravity.VERTICAL_GRAVITY_MASK) | (verticalGravity & Gravity.VERTICAL_GRAVITY_MASK);
     }
 
-    /**
-     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
-     *
-     * @param x                the position where to scroll on the X axis
-     * @param y                the position where to scroll on the Y axis
-     * @param scrollDurationMs the duration of the smooth scroll operation in milliseconds
-     */
-    public final void smoothScrollTo(int x, int y, int scrollDurationMs) {
-        smoothScrollTo(x, y, scrollDurationMs, false);
+    @Override
+    public void setDividerDrawable(Drawable divider) {
+        super.setDividerDrawable(divider);
+        mDividerDrawable = divider;
     }
 
     /**
-     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
-     *
-     * @param x                   the position where to scroll on the X axis
-     * @param y                   the position where to scroll on the Y axis
-     * @param withNestedScrolling whether to include nested scrolling operations.
+     * @return 滚动方向上分割线的长度，不展示分割线时为0
      */
-    // This should be considered private, it is package private to avoid a synthetic ancestor.
-    void smoothScrollTo(int x, int y, boolean withNestedScrolling) {
-        smoothScrollTo(x, y, DEFAULT_SMOOTH_SCROLL_DURATION, withNestedScrolling);
+    private int getScrollAxisDividerLength() {
+        if (mDividerDrawable == null || getShowDividers() == SHOW_DIVIDER_NONE) {
+            return 0;
+        }
+        return getOrientation() == HORIZONTAL
+                ? mDividerDrawable.getIntrinsicWidth() : mDividerDrawable.getIntrinsicHeight();
     }
 
     /**
-     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     * 与父类保持一致：首个可见子视图之前按{@link #SHOW_DIVIDER_BEGINNING}判断，其余按{@link #SHOW_DIVIDER_MIDDLE}判断
      *
-     * @param x                   the position where to scroll on the X axis
-     * @param y                   the position where to scroll on the Y axis
-     * @param scrollDurationMs    the duration of the smooth scroll operation in milliseconds
-     * @param withNestedScrolling whether to include nested scrolling operations.
+     * @param afterVisibleChild 之前是否存在可见的子视图
      */
-    // This should be considered private, it is package private to avoid a synthetic ancestor.
-    void smoothScrollTo(int x, int y, int scrollDurationMs, boolean withNestedScrolling) {
-        smoothScrollBy(x - getScrollX(), y - getScrollY(), scrollDurationMs, withNestedScrolling);
+    private boolean hasDividerBeforeChild(boolean afterVisibleChild) {
+        return (getShowDividers() & (afterVisibleChild ? SHOW_DIVIDER_MIDDLE : SHOW_DIVIDER_BEGINNING)) != 0;
     }
 
     /**
-     * <p>The scroll range of a scroll view is the overall height of all of its
-     * children.</p>
+     * 可滚动模式下的测量：滚动方向上不限制尺寸，因此无需父类的权重分配及基线对齐，
+     * 除非非滚动方向尺寸不确定时填充父容器的子视图需要统一尺寸的二次测量，每个子视图只测量一次
      */
-    @Override
-    public int computeVerticalScrollRange() {
-        if (!mScrollable || getOrientation() == HORIZONTAL) {
-            return super.computeVerticalScrollRange();
+    private void measureScrollAxis(int widthMeasureSpec, int heightMeasureSpec) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int dividerLength = getScrollAxisDividerLength();
+        int totalLength = 0;
+        int maxCrossExtent = 0;
+        int childState = 0;
+        boolean hasVisibleChild = false;
+        final boolean crossExactly = MeasureSpec.getMode(horizontal ? heightMeasureSpec : widthMeasureSpec)
+                == MeasureSpec.EXACTLY;
+        boolean matchCrossChild = false;
+        final int[] sizes = mTempMeasuredSizes;
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            if (dividerLength > 0 && hasDividerBeforeChild(hasVisibleChild)) {
+                totalLength += dividerLength;
+            }
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            if (!crossExactly && (horizontal ? lp.height : lp.width) == ViewGroup.LayoutParams.MATCH_PARENT) {
+                matchCrossChild = true;
+                measureUniformChildFirstPass(child, widthMeasureSpec, heightMeasureSpec, sizes);
+            } else {
+                measureScrollableChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+                sizes[0] = child.getMeasuredWidthAndState();
+                sizes[1] = child.getMeasuredHeightAndState();
+            }
+            final int measuredWidth = sizes[0] & MEASURED_SIZE_MASK;
+            final int measuredHeight = sizes[1] & MEASURED_SIZE_MASK;
+            if (horizontal) {
+                totalLength += measuredWidth + lp.leftMargin + lp.rightMargin;
+                maxCrossExtent = Math.max(maxCrossExtent, measuredHeight + lp.topMargin + lp.bottomMargin);
+            } else {
+                totalLength += measuredHeight + lp.topMargin + lp.bottomMargin;
+                maxCrossExtent = Math.max(maxCrossExtent, measuredWidth + lp.leftMargin + lp.rightMargin);
+            }
+            childState = combineMeasuredStates(childState, (sizes[0] & MEASURED_STATE_MASK)
+                    | ((sizes[1] >> MEASURED_HEIGHT_STATE_SHIFT) & (MEASURED_STATE_MASK >> MEASURED_HEIGHT_STATE_SHIFT)));
+            hasVisibleChild = true;
         }
-        final int count = getChildCount();
-        final int contentHeight = getHeight() - getPaddingBottom() - getPaddingTop();
-        if (count == 0) {
-            return contentHeight;
+        if (hasVisibleChild && dividerLength > 0 && (getShowDividers() & SHOW_DIVIDER_END) != 0) {
+            totalLength += dividerLength;
         }
-
-        View lastChild = getChildAt(count - 1);
-        MarginLayoutParams lp = (MarginLayoutParams) lastChild.getLayoutParams();
-        int scrollRange = lastChild.getBottom() + lp.bottomMargin;
-        final int scrollY = getScrollY();
-        final int overscrollBottom = Math.max(0, scrollRange - contentHeight);
-        if (scrollY < 0) {
-            scrollRange -= scrollY;
-        } else if (scrollY > overscrollBottom) {
-            scrollRange += scrollY - overscrollBottom;
+        mScrollContentLength = totalLength;
+        mIncrementalLayoutPending = false;
+        mScrollAxisMeasured = true;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        fillLayoutSignature(mLayoutSignature);
+
+        final int paddingHorizontal = getPaddingLeft() + getPaddingRight();
+        final int paddingVertical = getPaddingTop() + getPaddingBottom();
+        final int width;
+        final int height;
+        if (horizontal) {
+            width = totalLength + paddingHorizontal;
+            height = maxCrossExtent + paddingVertical;
+        } else {
+            width = maxCrossExtent + paddingHorizontal;
+            height = totalLength + paddingVertical;
         }
-
-        return scrollRange;
-    }
-
-    @Override
-    public int computeVerticalScrollOffset() {
-        if (!mScrollable || getOrientation() == HORIZONTAL) {
-            return super.computeVerticalScrollOffset();
+        setMeasuredDimension(
+                resolveSizeAndState(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec, childState),
+                resolveSizeAndState(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec,
+                        childState << MEASURED_HEIGHT_STATE_SHIFT));
+        if (matchCrossChild) {
+            forceUniformCrossExtent();
         }
-        return Math.max(0, super.computeVerticalScrollOffset());
     }
 
-    @Override
-    public int computeVerticalScrollExtent() {
-        return super.computeVerticalScrollExtent();
+    /**
+     * 与父类的 forceUniformWidth/forceUniformHeight 一致：非滚动方向尺寸不确定时，
+     * 以容器最终的尺寸重新测量非滚动方向上填充父容器的子视图，滚动方向上保持已测量的尺寸。
+     * 首次测量由 {@link #measureUniformChildFirstPass} 单独记录，两次测量的规格不变时均命中缓存
+     */
+    private void forceUniformCrossExtent() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int crossSpace = horizontal
+                ? getMeasuredHeight() - getPaddingTop() - getPaddingBottom()
+                : getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            if (horizontal && lp.height == ViewGroup.LayoutParams.MATCH_PARENT) {
+                measureChildWithCache(child,
+                        MeasureSpec.makeMeasureSpec(child.getMeasuredWidth(), MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(Math.max(0, crossSpace - lp.topMargin - lp.bottomMargin),
+                                MeasureSpec.EXACTLY));
+            } else if (!horizontal && lp.width == ViewGroup.LayoutParams.MATCH_PARENT) {
+                measureChildWithCache(child,
+                        MeasureSpec.makeMeasureSpec(Math.max(0, crossSpace - lp.leftMargin - lp.rightMargin),
+                                MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(child.getMeasuredHeight(), MeasureSpec.EXACTLY));
+            }
+        }
     }
 
-    @Override
-    public int computeHorizontalScrollRange() {
-        if (!mScrollable || getOrientation() == VERTICAL) {
-            return super.computeVerticalScrollRange();
-        }
+    /**
+     * 可滚动模式下的布局：沿滚动方向依次放置子视图，同时记录各子视图的位置索引
+     */
+    private void layoutScrollAxis() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
         final int count = getChildCount();
-        final int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
-        if (count == 0) {
-            return contentWidth;
+        final int dividerLength = getScrollAxisDividerLength();
+        final int crossSpace = horizontal
+                ? getHeight() - getPaddingTop() - getPaddingBottom()
+                : getWidth() - getPaddingLeft() - getPaddingRight();
+
+        int cursor = horizontal ? getPaddingLeft() : getPaddingTop();
+        // 内容不足一屏时按照容器对齐方式放置
+        final int space = getViewportLength() - mScrollContentLength;
+        if (space > 0) {
+            if (horizontal) {
+                switch (mGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+                    case Gravity.CENTER_HORIZONTAL:
+                        cursor += space / 2;
+                        break;
+                    case Gravity.RIGHT:
+                        cursor += space;
+                        break;
+                }
+            } else {
+                switch (mGravity & Gravity.VERTICAL_GRAVITY_MASK) {
+                    case Gravity.CENTER_VERTICAL:
+                        cursor += space / 2;
+                        break;
+                    case Gravity.BOTTOM:
+                        cursor += space;
+                        break;
+                }
+            }
         }
 
-        View lastChild = getChildAt(count - 1);
-        MarginLayoutParams lp = (MarginLayoutParams) lastChild.getLayoutParams();
-        int scrollRange = lastChild.getRight() + lp.rightMargin;
-        final int scrollX = getScrollX();
-        final int overscrollRight = Math.max(0, scrollRange - contentWidth);
-        if (scrollX < 0) {
-            scrollRange -= scrollX;
-        } else if (scrollX > overscrollRight) {
-            scrollRange += scrollX - overscrollRight;
+        mChildOffsets.begin(count);
+        boolean hasVisibleChild = false;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                mChildOffsets.set(i, cursor, 0);
+                continue;
+            }
+            if (dividerLength > 0 && hasDividerBeforeChild(hasVisibleChild)) {
+                cursor += dividerLength;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int width = child.getMeasuredWidth();
+            final int height = child.getMeasuredHeight();
+            final int extent;
+            if (horizontal) {
+                final int left = cursor + lp.leftMargin;
+                final int top = getChildCrossStart(lp, height, true, crossSpace);
+                child.layout(left, top, left + width, top + height);
+                extent = width + lp.leftMargin + lp.rightMargin;
+            } else {
+                final int left = getChildCrossStart(lp, width, false, crossSpace);
+                final int top = cursor + lp.topMargin;
+                child.layout(left, top, left + width, top + height);
+                extent = height + lp.topMargin + lp.bottomMargin;
+            }
+            mChildOffsets.set(i, cursor, extent);
+            cursor += extent;
+            hasVisibleChild = true;
         }
-
-        return scrollRange;
+        mChildOffsets.finish();
+        recordLaidOutChildren();
+        mLaidOutContentLength = mScrollContentLength;
     }
 
-    @Override
-    public int computeHorizontalScrollOffset() {
-        if (!mScrollable || getOrientation() == VERTICAL) {
-            return super.computeHorizontalScrollOffset();
-        }
-        return Math.max(0, super.computeHorizontalScrollOffset());
+    /**
+     * 记录影响可滚动模式布局的容器属性
+     */
+    private void fillLayoutSignature(int[] signature) {
+        signature[0] = getOrientation();
+        signature[1] = getPaddingLeft();
+        signature[2] = getPaddingTop();
+        signature[3] = getPaddingRight();
+        signature[4] = getPaddingBottom();
+        signature[5] = mGravity;
+        signature[6] = getScrollAxisDividerLength();
     }
 
-    @Override
-    public int computeHorizontalScrollExtent() {
-        return super.computeHorizontalScrollExtent();
+    private boolean isLayoutSignatureChanged() {
+        final int[] signature = mLayoutSignature;
+        return signature[0] != getOrientation()
+                || signature[1] != getPaddingLeft()
+                || signature[2] != getPaddingTop()
+                || signature[3] != getPaddingRight()
+                || signature[4] != getPaddingBottom()
+                || signature[5] != mGravity
+                || signature[6] != getScrollAxisDividerLength();
     }
 
-    @Override
-    protected void measureChild(View child, int parentWidthMeasureSpec, int parentHeightMeasureSpec) {
-        if (!mScrollable) {
-            super.measureChild(child, parentWidthMeasureSpec, parentHeightMeasureSpec);
-            return;
-        }
-        ViewGroup.LayoutParams lp = child.getLayoutParams();
-        if (getOrientation() == HORIZONTAL) {
-            // 因为水平滚动，修改父容器的测量模式为不指定，便于子视图可以任意扩展宽度
-            parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.UNSPECIFIED);
-            // 因为测量bug，修正垂直方向上的尺寸模式
-            if (lp.height == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentHeightMeasureSpec) == MeasureSpec.AT_MOST) {
-                parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.EXACTLY);
-            }
+    /**
+     * @return 滚动方向上的对齐方式是否为起始对齐，与{@link #layoutScrollAxis()}的判断保持一致
+     */
+    private boolean isScrollAxisGravityStart(boolean horizontal) {
+        if (horizontal) {
+            final int gravity = mGravity & Gravity.HORIZONTAL_GRAVITY_MASK;
+            return gravity != Gravity.CENTER_HORIZONTAL && gravity != Gravity.RIGHT;
         } else {
-            if (lp.width == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentWidthMeasureSpec) == MeasureSpec.AT_MOST) {
-                parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.EXACTLY);
-            }
-            // 因为垂直滚动，所以高度模式不指定，便于子视图任意扩展高度
-            parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.UNSPECIFIED);
+            final int gravity = mGravity & Gravity.VERTICAL_GRAVITY_MASK;
+            return gravity != Gravity.CENTER_VERTICAL && gravity != Gravity.BOTTOM;
         }
+    }
 
-        int childWidthMeasureSpec = getChildMeasureSpec(parentWidthMeasureSpec,
-                getPaddingLeft() + getPaddingRight(), lp.width);
-        int childHeightMeasureSpec = getChildMeasureSpec(parentHeightMeasureSpec,
-                getPaddingTop() + getPaddingBottom(), lp.height);
-
-        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+    private void recordLaidOutChildren() {
+        final int count = getChildCount();
+        if (mLaidOutChildren.length < count) {
+            mLaidOutChildren = new View[count];
+        }
+        for (int i = 0; i < count; i++) {
+            mLaidOutChildren[i] = getChildAt(i);
+        }
+        // 释放多余的引用，避免泄漏已移除的子视图
+        Arrays.fill(mLaidOutChildren, count, mLaidOutChildren.length, null);
+        mLaidOutChildCount = count;
     }
 
-    @Override
-    protected void measureChildWithMargins(View child, int parentWidthMeasureSpec, int widthUsed,
-                                           int parentHeightMeasureSpec, int heightUsed) {
-        if (!mScrollable) {
-            super.measureChildWithMargins(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed);
-            return;
+    /**
+     * 可滚动模式下的增量测量：子视图结构、容器属性及测量规格均未变化时，只重新测量请求了重新布局的子视图，
+     * 总长度由上次布局的总长度加上这些子视图的长度变化得到，其余子视图既不测量也不布局
+     *
+     * @return 无法增量测量时返回false，需要执行完整测量
+     */
+    private boolean measureScrollAxisIncrementally(int widthMeasureSpec, int heightMeasureSpec) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int count = getChildCount();
+        // 非滚动方向自适应时，子视图尺寸变化可能改变容器尺寸；分割线及内容不足一屏时的对齐方式会让子视图的位置互相影响
+        if (!mScrollAxisMeasured || count != mLaidOutChildCount || count != mChildOffsets.getCount()
+                || widthMeasureSpec != mLastWidthMeasureSpec || heightMeasureSpec != mLastHeightMeasureSpec
+                || MeasureSpec.getMode(horizontal ? heightMeasureSpec : widthMeasureSpec) != MeasureSpec.EXACTLY
+                || getScrollAxisDividerLength() > 0 || !isScrollAxisGravityStart(horizontal)
+                || isLayoutSignatureChanged()) {
+            return false;
         }
-        final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
-        if (getOrientation() == HORIZONTAL) {
-            // 因为水平滚动，修改父容器的测量模式为不指定，便于子视图可以任意扩展宽度
-            parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.UNSPECIFIED);
-            // 因为测量bug，修正垂直方向上的尺寸模式
-            if (lp.height == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentHeightMeasureSpec) == MeasureSpec.AT_MOST) {
-                parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.EXACTLY);
+
+        if (mDirtyChildIndices.length < count) {
+            mDirtyChildIndices = new int[count];
+            mDirtyChildExtents = new int[count];
+        }
+        int dirtyCount = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child != mLaidOutChildren[i]) {
+                return false;
             }
-        } else {
-            if (lp.width == ViewGroup.LayoutParams.MATCH_PARENT && MeasureSpec.getMode(parentWidthMeasureSpec) == MeasureSpec.AT_MOST) {
-                parentWidthMeasureSpec = modifyMeasureSpecMode(parentWidthMeasureSpec, MeasureSpec.EXACTLY);
+            if (child.isLayoutRequested()) {
+                mDirtyChildIndices[dirtyCount++] = i;
             }
-            // 因为垂直滚动，所以高度模式不指定，便于子视图任意扩展高度
-            parentHeightMeasureSpec = modifyMeasureSpecMode(parentHeightMeasureSpec, MeasureSpec.UNSPECIFIED);
+        }
+        // 没有子视图请求重新布局，说明是容器自身的变化
+        if (dirtyCount == 0) {
+            return false;
         }
 
-        int childWidthMeasureSpec = getChildMeasureSpec(parentWidthMeasureSpec,
-                getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin
-                        + widthUsed, lp.width);
-        int childHeightMeasureSpec = getChildMeasureSpec(parentHeightMeasureSpec,
-                getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin
-                        + heightUsed, lp.height);
+        int totalLength = mLaidOutContentLength;
+        for (int k = 0; k < dirtyCount; k++) {
+            final int index = mDirtyChildIndices[k];
+            final View child = getChildAt(index);
+            int extent = 0;
+            if (child.getVisibility() != GONE) {
+                measureScrollableChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+                final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+                extent = horizontal
+                        ? child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin
+                        : child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+            }
+            mDirtyChildExtents[k] = extent;
+            totalLength += extent - mChildOffsets.getExtent(index);
+        }
+        mDirtyChildCount = dirtyCount;
+        mScrollContentLength = totalLength;
+        mIncrementalLayoutPending = true;
 
-        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        if (horizontal) {
+            final int width = totalLength + getPaddingLeft() + getPaddingRight();
+            setMeasuredDimension(resolveSizeAndState(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec, 0),
+                    getMeasuredHeightAndState());
+        } else {
+            final int height = totalLength + getPaddingTop() + getPaddingBottom();
+            setMeasuredDimension(getMeasuredWidthAndState(),
+                    resolveSizeAndState(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec, 0));
+        }
+        return true;
     }
 
-    private static int modifyMeasureSpecMode(int spec, int mode) {
-        return MeasureSpec.makeMeasureSpec(MeasureSpec.getSize(spec), mode);
+    /**
+     * 可滚动模式下的增量布局：重新放置增量测量过的子视图，其后的子视图整体平移，并同步更新位置索引。
+     * 尺寸变化的子视图位于视口起始位置之前时，返回需要补偿的滚动距离，使视口内的子视图保持不动
+     *
+     * @return 滚动方向上需要补偿的滚动距离
+     */
+    private int layoutScrollAxisIncrementally() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int count = getChildCount();
+        final int dirtyCount = mDirtyChildCount;
+        final int crossSpace = horizontal
+                ? getHeight() - getPaddingTop() - getPaddingBottom()
+                : getWidth() - getPaddingLeft() - getPaddingRight();
+        final int viewportStart = horizontal ? getScrollX() + getPaddingLeft() : getScrollY() + getPaddingTop();
+
+        int scrollDelta = 0;
+        int shift = 0;
+        int next = 0;
+        for (int i = mDirtyChildIndices[0]; i < count; i++) {
+            final View child = getChildAt(i);
+            if (next < dirtyCount && mDirtyChildIndices[next] == i) {
+                final int start = mChildOffsets.getStart(i) + shift;
+                final int delta = mDirtyChildExtents[next] - mChildOffsets.getExtent(i);
+                if (child.getVisibility() != GONE) {
+                    final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                    final int width = child.getMeasuredWidth();
+                    final int height = child.getMeasuredHeight();
+                    if (horizontal) {
+                        final int left = start + lp.leftMargin;
+                        final int top = getChildCrossStart(lp, height, true, crossSpace);
+                        child.layout(left, top, left + width, top + height);
+                    } else {
+                        final int left = getChildCrossStart(lp, width, false, crossSpace);
+                        final int top = start + lp.topMargin;
+                        child.layout(left, top, left + width, top + height);
+                    }
+                }
+                if (start < viewportStart) {
+                    scrollDelta += delta;
+                }
+                shift += delta;
+                next++;
+            } else if (shift != 0 && child.getVisibility() != GONE) {
+                if (horizontal) {
+                    child.offsetLeftAndRight(shift);
+                } else {
+                    child.offsetTopAndBottom(shift);
+                }
+            }
+        }
+        // 位置索引在平移完成后统一更新，平移过程中读取的均为原位置
+        for (int k = 0; k < dirtyCount; k++) {
+            mChildOffsets.resize(mDirtyChildIndices[k], mDirtyChildExtents[k]);
+        }
+        mLaidOutContentLength = mScrollContentLength;
+        mIncrementalLayoutPending = false;
+        return scrollDelta;
     }
 
     @Override
@@ -2014,6 +4735,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
             return;
         }
         mScroller.computeScrollOffset();
+        schedulePrefetch();
         final boolean horizontal = getOrientation() == HORIZONTAL;
         final int x = mScroller.getCurrX();
         final int y = mScroller.getCurrY();
@@ -2104,10 +4826,16 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
             ViewCompat.postInvalidateOnAnimation(this);
         } else {
             stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+            stopFlingPrefetch();
+            dispatchScrollSettled();
+            updateScrollState();
         }
     }
 
     private void runAnimatedScroll(boolean participateInNestedScrolling) {
+        // 之前的惯性滑动被新的动画取代，在当前位置结束，新的惯性滑动随后重新预测
+        dispatchScrollSettled();
+        mPendingScrollIndex = -1;
         if (participateInNestedScrolling) {
             startNestedScroll(getScrollAxes(), ViewCompat.TYPE_NON_TOUCH);
         } else {
@@ -2118,12 +4846,144 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         } else {
             mLastScrollerY = getScrollY();
         }
-        ViewCompat.postInvalidateOnAnimation(this);
+        ViewCompat.postInvalidateOnAnimation(this);
+        updateScrollState();
+    }
+
+    private void recordAnimatedScroll(int start, int end, int durationMs) {
+        mAnimatedScrollStart = start;
+        mAnimatedScrollFinal = end;
+        mAnimatedScrollDuration = durationMs;
+        mAnimatedScrollStartTime = AnimationUtils.currentAnimationTimeMillis();
+    }
+
+    /**
+     * 获取进行中的滚动动画在滚动方向上的当前速度
+     *
+     * @return 速度，单位为像素每毫秒，没有进行中的动画时返回0
+     */
+    private float getAnimatedScrollVelocity() {
+        if (mScroller.isFinished()) {
+            return 0;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int start = horizontal ? mScroller.getStartX() : mScroller.getStartY();
+        final int end = horizontal ? mScroller.getFinalX() : mScroller.getFinalY();
+        if (mAnimatedScrollDuration > 0 && start == mAnimatedScrollStart && end == mAnimatedScrollFinal) {
+            final long elapsed = AnimationUtils.currentAnimationTimeMillis() - mAnimatedScrollStartTime;
+            final float input = Math.min(1f, (float) elapsed / mAnimatedScrollDuration);
+            return (end - start) * mScrollInterpolator.getSlope(input) / mAnimatedScrollDuration;
+        }
+        // 惯性滑动或回弹，OverScroller 给出的速度不带方向
+        final int current = horizontal ? getScrollX() : getScrollY();
+        return Math.signum(end - current) * mScroller.getCurrVelocity() / 1000f;
+    }
+
+    /**
+     * 将进行中的滚动动画改为滚动到新的目标位置，新动画的起始速度与当前速度衔接；
+     * 没有进行中的动画时按默认曲线开始平滑滚动
+     *
+     * @param target              滚动方向上的目标位置，调用方需保证在滚动范围内
+     * @param durationMs          从当前位置到达目标位置的时长
+     * @param withNestedScrolling whether to include nested scrolling operations.
+     */
+    private void retargetAnimatedScroll(int target, int durationMs, boolean withNestedScrolling) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int current = horizontal ? getScrollX() : getScrollY();
+        final int distance = target - current;
+        if (distance == 0) {
+            if (!mScroller.isFinished()) {
+                abortAnimatedScroll();
+            }
+            return;
+        }
+        if (mScroller.isFinished()) {
+            mScrollInterpolator.reset();
+        } else {
+            mScrollInterpolator.setInitialSlope(getAnimatedScrollVelocity() * durationMs / distance);
+        }
+        if (horizontal) {
+            mScroller.startScroll(current, getScrollY(), distance, 0, durationMs);
+        } else {
+            mScroller.startScroll(getScrollX(), current, 0, distance, durationMs);
+        }
+        recordAnimatedScroll(current, target, durationMs);
+        runAnimatedScroll(withNestedScrolling);
+        mLastScroll = AnimationUtils.currentAnimationTimeMillis();
+    }
+
+    private void abortAnimatedScroll() {
+        mScroller.abortAnimation();
+        stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+        dispatchScrollSettled();
+        updateScrollState();
+    }
+
+    /**
+     * 滚动到指定下标的子视图，使其滚动方向上的起始边缘（含外边距）位于视口起始位置之后 offset 处，
+     * 通过位置索引定位，O(log n)。布局未完成时推迟到下次布局后执行，适配器模式下下标为条目位置
+     *
+     * @param index  子视图下标，越界时忽略
+     * @param offset 子视图起始边缘相对于视口起始位置（不含内边距）的距离
+     * @param smooth 是否平滑滚动
+     */
+    public void scrollToChildIndex(int index, int offset, boolean smooth) {
+        if (!mScrollable || index < 0) {
+            return;
+        }
+        if (mIsLayoutDirty || !mIsLaidOut) {
+            // The child may not be laid out yet, we can't compute the scroll yet
+            mPendingScrollIndex = index;
+            mPendingScrollIndexOffset = offset;
+            mPendingScrollIndexSmooth = smooth;
+            return;
+        }
+        mPendingScrollIndex = -1;
+        final int target = resolveChildIndexScroll(index, offset);
+        if (target < 0) {
+            return;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        if (smooth) {
+            smoothScrollTo(horizontal ? target : getScrollX(), horizontal ? getScrollY() : target);
+        } else {
+            if (!mScroller.isFinished()) {
+                abortAnimatedScroll();
+            }
+            scrollTo(horizontal ? target : getScrollX(), horizontal ? getScrollY() : target);
+            alignChildIndexScroll(index, offset);
+        }
+    }
+
+    /**
+     * 适配器模式下目标条目之前的长度含有预估值，填充窗口测量后目标条目的位置会偏移，
+     * 按测量后的长度重新定位，直到目标条目位于视口起始位置之后 offset 处
+     */
+    private void alignChildIndexScroll(int index, int offset) {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        for (int pass = 0; mAdapter != null && pass < MAX_CHILD_INDEX_SCROLL_PASSES; pass++) {
+            final int target = resolveChildIndexScroll(index, offset);
+            if (target < 0 || target == (horizontal ? getScrollX() : getScrollY())) {
+                return;
+            }
+            scrollTo(horizontal ? target : getScrollX(), horizontal ? getScrollY() : target);
+            if (isLayoutRequested()) {
+                // 布局过程中的滚动不会更新虚拟化窗口
+                fillVirtualWindow(getViewportLength(), false);
+            }
+        }
     }
 
-    private void abortAnimatedScroll() {
-        mScroller.abortAnimation();
-        stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+    /**
+     * @return 使指定下标的子视图位于视口起始位置之后 offset 处的滚动位置，已限制在滚动范围内，下标越界时返回-1
+     */
+    private int resolveChildIndexScroll(int index, int offset) {
+        if (index >= getOffsetIndexCount()) {
+            return -1;
+        }
+        final int paddingStart = getOrientation() == HORIZONTAL ? getPaddingLeft() : getPaddingTop();
+        final int scroll = getOffsetIndexStart(index) - paddingStart - offset;
+        return Math.max(0, Math.min(scroll, getScrollRange()));
     }
 
     /**
@@ -2220,9 +5080,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
                 }
 
                 // make sure we aren't scrolling beyond the end of our content
-                View lastChild = getChildAt(getChildCount() - 1);
-                MarginLayoutParams lp = (MarginLayoutParams) lastChild.getLayoutParams();
-                int right = lastChild.getRight() + lp.rightMargin;
+                int right = getChildContentEnd();
                 int distanceToRight = right - actualScreenRight;
                 scrollXDelta = Math.min(scrollXDelta, distanceToRight);
 
@@ -2277,9 +5135,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
                 }
 
                 // make sure we aren't scrolling beyond the end of our content
-                View lastChild = getChildAt(getChildCount() - 1);
-                MarginLayoutParams lp = (MarginLayoutParams) lastChild.getLayoutParams();
-                int bottom = lastChild.getBottom() + lp.bottomMargin;
+                int bottom = getChildContentEnd();
                 int distanceToBottom = bottom - actualScreenBottom;
                 scrollYDelta = Math.min(scrollYDelta, distanceToBottom);
 
@@ -2305,7 +5161,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
 
     @Override
     public void requestChildFocus(View child, View focused) {
-        if (mScrollable) {
+        if (mScrollable && !mSuppressFocusScroll) {
             if (!mIsLayoutDirty) {
                 scrollToChild(focused);
             } else {
@@ -2338,9 +5194,11 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
             direction = horizontal ? View.FOCUS_LEFT : View.FOCUS_UP;
         }
 
-        final View nextFocus = previouslyFocusedRect == null
-                ? FocusFinder.getInstance().findNextFocus(this, null, direction)
-                : FocusFinder.getInstance().findNextFocusFromRect(this, previouslyFocusedRect, direction);
+        // 屏幕外的候选不会被采用，只在与屏幕相交的子视图中查找
+        final int screenStart = horizontal ? getScrollX() : getScrollY();
+        final int screenEnd = screenStart + (horizontal ? getWidth() : getHeight());
+        final View nextFocus = findNextFocusInWindow(null, previouslyFocusedRect, direction,
+                screenStart, screenEnd + 1);
 
         if (nextFocus == null) {
             return false;
@@ -2368,25 +5226,175 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
 
     @Override
     public void requestLayout() {
+        mChildOffsetsDirty = true;
         if (mScrollable) {
             mIsLayoutDirty = true;
         }
+        mContentExtentValid = false;
+        if (mBatchDepth > 0) {
+            mBatchLayoutRequested = true;
+            return;
+        }
+        if (absorbLayoutRequest()) {
+            return;
+        }
         super.requestLayout();
     }
 
+    /**
+     * 布局边界模式下，尺寸固定的容器自身处理布局请求：只标记自身需要重新布局并在下一帧执行，
+     * 期间子视图的布局请求因本容器已处于待布局状态而不会继续向上传递。
+     * 上层视图可能先以 AT_MOST 测量 wrap_content 的容器、最后才以 EXACTLY 测量，
+     * 仅凭最近一次的测量规格不能判断尺寸固定，因此要求自身的布局参数宽高均为固定值
+     *
+     * @return 布局请求是否已被吸收
+     */
+    private boolean absorbLayoutRequest() {
+        final ViewGroup.LayoutParams params = getLayoutParams();
+        if (!mLayoutBoundaryEnabled || !mScrollable || mForceLayoutPropagation || !mIsLaidOut
+                || params == null || params.width < 0 || params.height < 0
+                || isLayoutParamsChangedSinceMeasure()
+                || getParent() == null || !ViewCompat.isAttachedToWindow(this)
+                || MeasureSpec.getMode(mBoundaryWidthMeasureSpec) != MeasureSpec.EXACTLY
+                || MeasureSpec.getMode(mBoundaryHeightMeasureSpec) != MeasureSpec.EXACTLY) {
+            return false;
+        }
+        if (!mBoundaryLayoutPending) {
+            mBoundaryLayoutPending = true;
+            forceLayout();
+            ViewCompat.postOnAnimation(this, mBoundaryLayoutRunnable);
+        }
+        return true;
+    }
+
+    private void fillBoundaryLayoutParamValues(int[] values) {
+        final ViewGroup.LayoutParams params = getLayoutParams();
+        Arrays.fill(values, 0);
+        if (params == null) {
+            return;
+        }
+        values[0] = params.width;
+        values[1] = params.height;
+        if (params instanceof MarginLayoutParams) {
+            final MarginLayoutParams lp = (MarginLayoutParams) params;
+            values[2] = lp.leftMargin;
+            values[3] = lp.topMargin;
+            values[4] = lp.rightMargin;
+            values[5] = lp.bottomMargin;
+        }
+    }
+
+    /**
+     * @return 自身的布局参数与最近一次测量时相比是否发生变化，变化时布局请求不能被吸收
+     */
+    private boolean isLayoutParamsChangedSinceMeasure() {
+        final ViewGroup.LayoutParams params = getLayoutParams();
+        if (params != mBoundaryLayoutParams || params == null) {
+            return true;
+        }
+        final int[] values = mBoundaryLayoutParamValues;
+        if (values[0] != params.width || values[1] != params.height) {
+            return true;
+        }
+        if (params instanceof MarginLayoutParams) {
+            final MarginLayoutParams lp = (MarginLayoutParams) params;
+            return values[2] != lp.leftMargin || values[3] != lp.topMargin
+                    || values[4] != lp.rightMargin || values[5] != lp.bottomMargin;
+        }
+        return false;
+    }
+
+    /**
+     * 以最近一次的测量规格对自身重新测量及布局，上层视图已经完成了本容器的布局时不再重复执行。
+     * 测量得到的尺寸与当前尺寸不一致时说明尺寸并不固定，改为向上请求布局，由上层视图重新确定本容器的尺寸
+     */
+    private void performBoundaryLayout() {
+        if (!mBoundaryLayoutPending) {
+            return;
+        }
+        mBoundaryLayoutPending = false;
+        forceLayout();
+        measure(mBoundaryWidthMeasureSpec, mBoundaryHeightMeasureSpec);
+        if (getMeasuredWidth() != getWidth() || getMeasuredHeight() != getHeight()) {
+            super.requestLayout();
+            return;
+        }
+        layout(getLeft(), getTop(), getRight(), getBottom());
+        invalidate();
+    }
+
+    @Override
+    public void setLayoutParams(ViewGroup.LayoutParams params) {
+        mForceLayoutPropagation = true;
+        try {
+            super.setLayoutParams(params);
+        } finally {
+            mForceLayoutPropagation = false;
+        }
+    }
+
+    @Override
+    public void setVisibility(int visibility) {
+        mForceLayoutPropagation = true;
+        try {
+            super.setVisibility(visibility);
+        } finally {
+            mForceLayoutPropagation = false;
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        super.onLayout(changed, l, t, r, b);
-        if (mScrollable) {
+        mBoundaryLayoutPending = false;
+        int anchorScrollDelta = 0;
+        // 布局前子视图仍处于原位置，批量更新开始时已记录过锚点的除外
+        if (mScrollAnchoringEnabled && mScrollable && mIsLaidOut && mBatchDepth == 0
+                && !mIncrementalLayoutPending && mScrollAnchorChild == null) {
+            captureScrollAnchor();
+        }
+        if (mAdapter != null) {
+            fillVirtualWindow(getViewportLength(), false);
+        } else if (mScrollable) {
+            if (mIncrementalLayoutPending) {
+                anchorScrollDelta = layoutScrollAxisIncrementally();
+            } else {
+                layoutScrollAxis();
+            }
+        } else {
+            super.onLayout(changed, l, t, r, b);
+            mChildOffsets.rebuild(this, getOrientation() == HORIZONTAL);
+            recordLaidOutChildren();
+        }
+        if (mAdapter == null) {
+            mChildOffsetsDirty = false;
+            mChildOffsetsFromLayout = true;
+        }
+        updateContentExtentCache();
+        final int filledScrollX = getScrollX();
+        final int filledScrollY = getScrollY();
+        // 批量更新期间由上层触发的布局只放置子视图，滚动位置留待批量更新结束后的布局处理
+        if (mScrollable && mBatchDepth == 0) {
             mIsLayoutDirty = false;
             // Give a child focus if it needs it
-            if (mChildToScrollTo != null && isViewDescendantOf(mChildToScrollTo, this)) {
+            final boolean scrollToFocus = mChildToScrollTo != null && isViewDescendantOf(mChildToScrollTo, this);
+            if (scrollToFocus) {
                 scrollToChild(mChildToScrollTo);
             }
             mChildToScrollTo = null;
 
             int newScrollX = getScrollX();
             int newScrollY = getScrollY();
+            final int anchoredScroll = consumeScrollAnchor();
+            if (mBatchScrollPending) {
+                // 批量更新期间显式设置的滚动位置优先于锚点，随后统一限制在滚动范围内
+                mBatchScrollPending = false;
+            } else if (!scrollToFocus) {
+                if (getOrientation() == HORIZONTAL) {
+                    newScrollX = anchoredScroll != Integer.MIN_VALUE ? anchoredScroll : newScrollX + anchorScrollDelta;
+                } else {
+                    newScrollY = anchoredScroll != Integer.MIN_VALUE ? anchoredScroll : newScrollY + anchorScrollDelta;
+                }
+            }
 
             if (!mIsLaidOut) {
                 final boolean horizontal = getOrientation() == HORIZONTAL;
@@ -2411,10 +5419,86 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
                 }
             }
 
+            final int pendingIndex = mPendingScrollIndex;
+            final boolean pendingSmooth = mPendingScrollIndexSmooth && mIsLaidOut;
+            if (pendingIndex >= 0 && !pendingSmooth) {
+                final int target = resolveChildIndexScroll(pendingIndex, mPendingScrollIndexOffset);
+                if (target >= 0) {
+                    if (getOrientation() == HORIZONTAL) {
+                        newScrollX = target;
+                    } else {
+                        newScrollY = target;
+                    }
+                }
+            }
+            mPendingScrollIndex = -1;
+
             // Calling this with the present values causes it to re-claim them
             scrollTo(newScrollX, newScrollY);
             mIsLaidOut = true;
+
+            // 布局过程中的滚动不会更新虚拟化窗口，需要在此补充
+            if (mAdapter != null && (filledScrollX != getScrollX() || filledScrollY != getScrollY())) {
+                fillVirtualWindow(getViewportLength(), false);
+            }
+            if (pendingIndex >= 0) {
+                // 适配器模式下填充窗口后条目长度才是实际值，此时再确定最终位置
+                if (!pendingSmooth) {
+                    alignChildIndexScroll(pendingIndex, mPendingScrollIndexOffset);
+                } else {
+                    final int target = resolveChildIndexScroll(pendingIndex, mPendingScrollIndexOffset);
+                    if (target >= 0 && getOrientation() == HORIZONTAL) {
+                        smoothScrollTo(target, getScrollY());
+                    } else if (target >= 0) {
+                        smoothScrollTo(getScrollX(), target);
+                    }
+                }
+            }
+        }
+        if (mBatchFinishing && mBatchDepth == 0) {
+            finishBatchUpdate();
+        }
+        scheduleLazySlotInflate();
+        updateVisibleRange();
+        updateViewability();
+        updateViewportAwareChildren();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (ViewCompat.isLaidOut(this)) {
+            updateViewability();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // 父类构造过程中也可能回调，此时成员尚未初始化
+        if (ViewCompat.isAttachedToWindow(this) && ViewCompat.isLaidOut(this)) {
+            updateViewability();
+        }
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        mChildOffsetsDirty = true;
+        if (child instanceof LazySlotView) {
+            mLazySlotCount++;
+        }
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mChildOffsetsDirty = true;
+        // 占位可能经由 removeView* 或 removeAllViews 被外部移除，在此统一计数，避免持续调度无效的检查
+        if (child instanceof LazySlotView) {
+            mLazySlotCount--;
         }
+        mDrawnChildren.remove(child);
     }
 
     @Override
@@ -2425,9 +5509,43 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopFlingPrefetch();
+        leaveAllViewportAwareChildren();
+        if (mBatchFinishing) {
+            // 等待中的布局不会再执行，避免滚动监听回调一直被抑制
+            finishBatchUpdate();
+        }
+        if (mFrameScrollPending) {
+            mFrameScrollPending = false;
+            removeCallbacks(mFrameScrollRunnable);
+        }
+        if (mViewabilityCheckScheduled) {
+            mViewabilityCheckScheduled = false;
+            removeCallbacks(mViewabilityCheckRunnable);
+        }
+        if (mLazySlotInflateScheduled) {
+            mLazySlotInflateScheduled = false;
+            removeCallbacks(mLazySlotInflateRunnable);
+        }
+        if (mKeyRepeatScheduled) {
+            mKeyRepeatScheduled = false;
+            mPendingKeyRepeatCount = 0;
+            removeCallbacks(mKeyRepeatRunnable);
+        }
+        if (mBoundaryLayoutPending) {
+            // 脱离窗口后回调可能不再执行，重新附加时由上层的布局流程完成本容器的布局
+            mBoundaryLayoutPending = false;
+            removeCallbacks(mBoundaryLayoutRunnable);
+        }
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        mContentExtentValid = false;
 
         View currentFocused = findFocus();
         if (mScrollable && currentFocused != null && currentFocused != this) {
@@ -2471,11 +5589,19 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
      */
     public void flingX(int velocityX) {
         if (getChildCount() > 0) {
-            mScroller.fling(getScrollX(), getScrollY(), // start
-                    velocityX, 0, // velocities
-                    Integer.MIN_VALUE, Integer.MAX_VALUE, // x
-                    0, 0, // y
-                    0, 0); // overscroll
+            if (mSnapAlignment != SNAP_NONE) {
+                if (!startSnapScroll(velocityX)) {
+                    // 已经对齐，不需要滚动
+                    return;
+                }
+            } else {
+                mScroller.fling(getScrollX(), getScrollY(), // start
+                        velocityX, 0, // velocities
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, // x
+                        0, 0, // y
+                        0, 0); // overscroll
+            }
+            startFlingPrefetch();
 
             // 兼容HorizontalScrollView的滚动逻辑
 //            int width = getWidth() - getPaddingRight() - getPaddingLeft();
@@ -2492,15 +5618,173 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
 
     public void flingY(int velocityY) {
         if (getChildCount() > 0) {
-            mScroller.fling(getScrollX(), getScrollY(), // start
-                    0, velocityY, // velocities
-                    0, 0, // x
-                    Integer.MIN_VALUE, Integer.MAX_VALUE, // y
-                    0, 0); // overscroll
+            if (mSnapAlignment != SNAP_NONE) {
+                if (!startSnapScroll(velocityY)) {
+                    return;
+                }
+            } else {
+                mScroller.fling(getScrollX(), getScrollY(), // start
+                        0, velocityY, // velocities
+                        0, 0, // x
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, // y
+                        0, 0); // overscroll
+            }
+            startFlingPrefetch();
             runAnimatedScroll(true);
         }
     }
 
+    /**
+     * 吸附模式下按抬手速度计算吸附位置，并以与抬手速度衔接的匀减速动画滚动到该位置
+     *
+     * @param velocity 滚动方向上的速度，单位为像素每秒，0表示吸附到最近的位置
+     * @return 是否已开始吸附滚动，调用方需随后调用 {@link #runAnimatedScroll}。
+     * 已经对齐时不启动动画，中止进行中的动画并返回false
+     */
+    private boolean startSnapScroll(int velocity) {
+        if (mSnapAlignment == SNAP_NONE || getOffsetIndexCount() == 0) {
+            return false;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int scroll = horizontal ? getScrollX() : getScrollY();
+        int index;
+        if (mSnapPagingEnabled) {
+            index = findSnapIndex(scroll);
+            final int snapScroll = getSnapScroll(index);
+            if (velocity > 0 && snapScroll <= scroll) {
+                index++;
+            } else if (velocity < 0 && snapScroll >= scroll) {
+                index--;
+            }
+            index = Math.max(0, Math.min(index, getOffsetIndexCount() - 1));
+        } else if (velocity != 0) {
+            final int flingDistance = (int) Math.round(getSplineFlingDistance(velocity));
+            index = findSnapIndex(scroll + (velocity > 0 ? flingDistance : -flingDistance));
+        } else {
+            index = findSnapIndex(scroll);
+        }
+        final int target = Math.max(0, Math.min(getSnapScroll(index), getScrollRange()));
+        final int distance = target - scroll;
+        if (distance == 0) {
+            if (!mScroller.isFinished()) {
+                abortAnimatedScroll();
+            }
+            return false;
+        }
+        final float pixelsPerMillis = velocity / 1000f;
+        int duration = DEFAULT_SMOOTH_SCROLL_DURATION;
+        if (pixelsPerMillis * distance > 0) {
+            // 匀减速到达目标位置所需的时长，此时起始速度恰为平均速度的两倍
+            duration = Math.round(2 * distance / pixelsPerMillis);
+        }
+        duration = Math.max(MIN_SNAP_DURATION, Math.min(duration, MAX_SNAP_DURATION));
+        mScrollInterpolator.setInitialSlope(pixelsPerMillis * duration / distance);
+        if (horizontal) {
+            mScroller.startScroll(scroll, getScrollY(), distance, 0, duration);
+        } else {
+            mScroller.startScroll(getScrollX(), scroll, 0, distance, duration);
+        }
+        recordAnimatedScroll(scroll, target, duration);
+        mSnapTargetIndex = index;
+        return true;
+    }
+
+    /**
+     * 适配器模式下吸附动画期间，填充窗口测量的条目长度与预估长度不一致时吸附目标的位置随之变化，
+     * 按目标条目的最新位置重新指定动画终点，新动画的起始速度与当前速度衔接，时长为原动画的剩余时长
+     */
+    private void correctSnapTarget() {
+        final int index = mSnapTargetIndex;
+        if (index < 0) {
+            return;
+        }
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        if (mScroller.isFinished() || mAdapter == null || index >= getOffsetIndexCount()
+                || (horizontal ? mScroller.getStartX() : mScroller.getStartY()) != mAnimatedScrollStart
+                || (horizontal ? mScroller.getFinalX() : mScroller.getFinalY()) != mAnimatedScrollFinal) {
+            mSnapTargetIndex = -1;
+            return;
+        }
+        final int current = horizontal ? getScrollX() : getScrollY();
+        // 滚动器按相邻两帧的差值驱动滚动，填充窗口修正的滚动位置不影响剩余的滚动距离
+        final int landing = current + mAnimatedScrollFinal - (horizontal ? mLastScrollerX : mLastScrollerY);
+        final int target = Math.max(0, Math.min(getSnapScroll(index), getScrollRange()));
+        if (landing == target) {
+            return;
+        }
+        final int distance = target - current;
+        if (distance == 0) {
+            abortAnimatedScroll();
+            return;
+        }
+        final long elapsed = AnimationUtils.currentAnimationTimeMillis() - mAnimatedScrollStartTime;
+        final int duration = (int) Math.max(MIN_SNAP_DURATION, mAnimatedScrollDuration - elapsed);
+        mScrollInterpolator.setInitialSlope(getAnimatedScrollVelocity() * duration / distance);
+        if (horizontal) {
+            mScroller.startScroll(current, getScrollY(), distance, 0, duration);
+            mLastScrollerX = current;
+        } else {
+            mScroller.startScroll(getScrollX(), current, 0, distance, duration);
+            mLastScrollerY = current;
+        }
+        recordAnimatedScroll(current, target, duration);
+    }
+
+    /**
+     * 按 {@link OverScroller} 的样条曲线计算惯性滑动的距离，不启动滚动器
+     *
+     * @param velocity 速度，单位为像素每秒
+     * @return 滑动距离的绝对值
+     */
+    private double getSplineFlingDistance(int velocity) {
+        final float friction = ViewConfiguration.getScrollFriction();
+        final double l = Math.log(INFLEXION * Math.abs(velocity) / (friction * mFlingPhysicalCoeff));
+        final double decelMinusOne = DECELERATION_RATE - 1.0;
+        return friction * mFlingPhysicalCoeff * Math.exp(DECELERATION_RATE / decelMinusOne * l);
+    }
+
+    /**
+     * 以位置索引二分查找吸附位置离指定滚动位置最近的子视图，O(log n)
+     *
+     * @param scroll 滚动方向上的滚动位置
+     * @return 子视图下标，适配器模式下为条目位置，调用方需保证数量大于0
+     */
+    private int findSnapIndex(int scroll) {
+        final int count = getOffsetIndexCount();
+        final int paddingStart = getOrientation() == HORIZONTAL ? getPaddingLeft() : getPaddingTop();
+        final int viewportLength = getViewportLength();
+        final int alignOffset = mSnapAlignment == SNAP_CENTER ? viewportLength / 2
+                : mSnapAlignment == SNAP_END ? viewportLength : 0;
+        final int index = findOffsetIndex(scroll + paddingStart + alignOffset);
+        // 各子视图的吸附位置随下标单调递增，只需比较相邻的子视图
+        int nearest = index;
+        int nearestDistance = Math.abs(getSnapScroll(index) - scroll);
+        for (int i = Math.max(0, index - 1); i <= Math.min(index + 1, count - 1); i++) {
+            final int distance = Math.abs(getSnapScroll(i) - scroll);
+            if (distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * @return 指定子视图按当前对齐方式吸附时的滚动位置，未限制在滚动范围内
+     */
+    private int getSnapScroll(int index) {
+        final int paddingStart = getOrientation() == HORIZONTAL ? getPaddingLeft() : getPaddingTop();
+        final int start = getOffsetIndexStart(index);
+        switch (mSnapAlignment) {
+            case SNAP_CENTER:
+                return (start + getOffsetIndexEnd(index)) / 2 - paddingStart - getViewportLength() / 2;
+            case SNAP_END:
+                return getOffsetIndexEnd(index) - paddingStart - getViewportLength();
+            default:
+                return start - paddingStart;
+        }
+    }
+
     private void flingXWithNestedDispatch(int velocityX) {
         final int scrollX = getScrollX();
         final boolean canFling = (scrollX > 0 || velocityX > 0)
@@ -2508,6 +5792,9 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         if (!dispatchNestedPreFling(velocityX, 0)) {
             dispatchNestedFling(velocityX, 0, canFling);
             flingX(velocityX);
+            dispatchFlingPredicted();
+        } else if (startSnapScroll(0)) {
+            runAnimatedScroll(true);
         }
     }
 
@@ -2518,6 +5805,31 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         if (!dispatchNestedPreFling(0, velocityY)) {
             dispatchNestedFling(0, velocityY, canFling);
             flingY(velocityY);
+            dispatchFlingPredicted();
+        } else if (startSnapScroll(0)) {
+            runAnimatedScroll(true);
+        }
+    }
+
+    private void dispatchFlingPredicted() {
+        if (mOnFlingListener == null || mScroller.isFinished()) {
+            return;
+        }
+        final int finalScroll = Math.max(0, Math.min(getScrollRange(),
+                getOrientation() == HORIZONTAL ? mScroller.getFinalX() : mScroller.getFinalY()));
+        mFlingSettlePending = true;
+        mOnFlingListener.onFlingPredicted(this, finalScroll,
+                firstVisibleIndexAt(finalScroll), lastVisibleIndexAt(finalScroll));
+    }
+
+    private void dispatchScrollSettled() {
+        if (!mFlingSettlePending) {
+            return;
+        }
+        mFlingSettlePending = false;
+        if (mOnFlingListener != null) {
+            final int scroll = getOrientation() == HORIZONTAL ? getScrollX() : getScrollY();
+            mOnFlingListener.onScrollSettled(this, scroll, firstVisibleIndexAt(scroll), lastVisibleIndexAt(scroll));
         }
     }
 
@@ -2535,6 +5847,7 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
             mEdgeGlowTop.onRelease();
             mEdgeGlowBottom.onRelease();
         }
+        updateScrollState();
     }
 
     /**
@@ -2544,6 +5857,20 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
      */
     @Override
     public void scrollTo(int x, int y) {
+        // 显式指定的滚动位置取代尚未执行的按下标滚动
+        mPendingScrollIndex = -1;
+        clampScrollTo(x, y);
+    }
+
+    private void clampScrollTo(int x, int y) {
+        if (mBatchDepth > 0) {
+            // 批量更新期间内容尺寸尚未确定，滚动立即生效但暂不限制范围，结束时再统一修正
+            if (mScrollable && (x != getScrollX() || y != getScrollY())) {
+                mBatchScrollPending = true;
+                super.scrollTo(x, y);
+            }
+            return;
+        }
         // we rely on the fact the View.scrollBy calls scrollTo.
         if (mScrollable && getChildCount() > 0) {
             x = clamp(x, getWidth() - getPaddingRight() - getPaddingLeft(), getChildContentWidth());
@@ -2574,6 +5901,132 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         }
     }
 
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        mCullingChildren = mScrollable && getChildCount() > 0;
+        if (mCullingChildren) {
+            updateDrawWindow();
+        }
+        mDrawnChildren.clear();
+        super.dispatchDraw(canvas);
+        mCullingChildren = false;
+    }
+
+    private void updateDrawWindow() {
+        final boolean horizontal = getOrientation() == HORIZONTAL;
+        final int scroll = horizontal ? getScrollX() : getScrollY();
+        // 渐变边缘和越界滚动区域内的子视图仍然可见，需要保留
+        final int margin = (horizontal ? getHorizontalFadingEdgeLength() : getVerticalFadingEdgeLength())
+                + Math.max(mOverscrollDistance, mOverflingDistance);
+        mDrawWindowStart = scroll - margin;
+        mDrawWindowEnd = scroll + (horizontal ? getWidth() : getHeight()) + margin;
+    }
+
+    /**
+     * 是否丢弃完全位于可见区域之外的子视图发起的重绘
+     */
+    public boolean isOffscreenInvalidationDropped() {
+        return mDropOffscreenInvalidation;
+    }
+
+    /**
+     * 设置可滚动模式下是否丢弃完全位于可见区域之外的子视图发起的重绘，默认关闭。
+     * 只有上次绘制时未被绘制、当前位置也位于可见区域之外的子视图的重绘才会被丢弃，
+     * 硬件加速时子视图自身属性（如平移）变化引起的重绘始终保留。
+     * 被丢弃重绘的子视图在滚动回可见区域时随滚动引起的重绘一并绘制
+     *
+     * @param drop 是否丢弃
+     */
+    public void setOffscreenInvalidationDropped(boolean drop) {
+        mDropOffscreenInvalidation = drop;
+        if (!drop) {
+            mDrawnChildren.clear();
+        }
+    }
+
+    private boolean shouldDropChildInvalidation() {
+        return mDropOffscreenInvalidation && mScrollable && getChildCount() > 0;
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        // location为直接子视图在本容器中的位置，dirty为子视图坐标系下的重绘区域。
+        // 只有旧位置（上次未被绘制）与新位置都位于可见区域之外时才丢弃
+        if (shouldDropChildInvalidation()) {
+            updateDrawWindow();
+            final boolean horizontal = getOrientation() == HORIZONTAL;
+            final int start = horizontal ? location[0] + dirty.left : location[1] + dirty.top;
+            final int end = horizontal ? location[0] + dirty.right : location[1] + dirty.bottom;
+            if (end <= mDrawWindowStart || start >= mDrawWindowEnd) {
+                // 与 onDescendantInvalidated 一致，执行动画的子视图绘制位置不确定，无法确定发起的子视图时同样保留重绘
+                final View child = findChildAtLocation(location, horizontal);
+                if (child != null && child.getAnimation() == null && !mDrawnChildren.contains(child)) {
+                    mDroppedChildInvalidation = true;
+                    return null;
+                }
+            }
+        }
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+    /**
+     * 根据位置索引查找左上角位于指定位置的直接子视图
+     *
+     * @return 子视图，不存在或位置与子视图不一致时返回null
+     */
+    @Nullable
+    private View findChildAtLocation(int[] location, boolean horizontal) {
+        final int index = childIndexAtOffset(horizontal ? location[0] : location[1]);
+        if (index < 0) {
+            return null;
+        }
+        final View child = mAdapter != null ? mAttachedItems.get(index) : getChildAt(index);
+        if (child == null || child.getLeft() != location[0] || child.getTop() != location[1]) {
+            return null;
+        }
+        return child;
+    }
+
+    @Override
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void onDescendantInvalidated(@NonNull View child, @NonNull View target) {
+        // 硬件加速时子视图自身的显示列表已标记为需要更新，再次绘制到该子视图时会重建。
+        // target 为子视图自身时是属性变化引起的重绘，子视图可能正离开可见区域，必须保留
+        if (shouldDropChildInvalidation() && target != child && child.getAnimation() == null
+                && !mDrawnChildren.contains(child)) {
+            updateDrawWindow();
+            if (isOutsideDrawWindow(child)) {
+                mDroppedChildInvalidation = true;
+                return;
+            }
+        }
+        super.onDescendantInvalidated(child, target);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // 执行动画的子视图绘制位置不确定，不做裁剪
+        if (mCullingChildren && child.getAnimation() == null && isOutsideDrawWindow(child)) {
+            return false;
+        }
+        if (mDropOffscreenInvalidation) {
+            mDrawnChildren.add(child);
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    private boolean isOutsideDrawWindow(View child) {
+        if (getOrientation() == HORIZONTAL) {
+            final float translation = child.getTranslationX();
+            return child.getRight() + translation <= mDrawWindowStart
+                    || child.getLeft() + translation >= mDrawWindowEnd;
+        } else {
+            final float translation = child.getTranslationY();
+            return child.getBottom() + translation <= mDrawWindowStart
+                    || child.getTop() + translation >= mDrawWindowEnd;
+        }
+    }
+
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
@@ -2708,6 +6161,55 @@ public class ScrollLinearLayout extends LinearLayout implements NestedScrollingP
         return ss;
     }
 
+    /**
+     * 子视图布局参数，在{@link LinearLayout.LayoutParams}的基础上记录容器维护的子视图状态
+     */
+    public static class LayoutParams extends LinearLayout.LayoutParams {
+
+        /**
+         * 上次测量子视图时使用的测量规格及测量结果
+         */
+        boolean mMeasureCached;
+        int mCachedWidthMeasureSpec;
+        int mCachedHeightMeasureSpec;
+        int mCachedMeasuredWidth;
+        int mCachedMeasuredHeight;
+        /**
+         * 需要统一非滚动方向尺寸的子视图首次测量时使用的测量规格及测量结果，仅在 {@link #mMeasureCached} 有效时可用
+         */
+        boolean mFirstPassCached;
+        int mFirstPassWidthMeasureSpec;
+        int mFirstPassHeightMeasureSpec;
+        int mFirstPassMeasuredWidth;
+        int mFirstPassMeasuredHeight;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(int width, int height, float weight) {
+            super(width, height, weight);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(MarginLayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(LinearLayout.LayoutParams source) {
+            super((MarginLayoutParams) source);
+            this.weight = source.weight;
+            this.gravity = source.gravity;
+        }
+    }
+
     static class SavedState extends BaseSavedState {
 
         public int orientation;
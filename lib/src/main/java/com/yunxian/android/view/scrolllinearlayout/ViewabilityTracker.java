@@ -0,0 +1,233 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 子视图曝光统计：对可见范围内的子视图按照各条规则判断曝光比例是否达到阈值，
+ * 持续达到阈值的时长满足驻留要求后回调一次，曝光比例低于阈值后重新计时
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 18:05
+ */
+final class ViewabilityTracker {
+
+    private static final int MAX_POOLED_STATES = 16;
+
+    private static final class Rule {
+        final float mThreshold;
+        final long mDwellMillis;
+        final ScrollLinearLayout.OnViewabilityListener mListener;
+
+        Rule(float threshold, long dwellMillis, ScrollLinearLayout.OnViewabilityListener listener) {
+            mThreshold = threshold;
+            mDwellMillis = dwellMillis;
+            mListener = listener;
+        }
+    }
+
+    /**
+     * 单个子视图在各条规则下的计时状态，下标与规则一致
+     */
+    private static final class ChildState {
+        /**
+         * 普通模式下状态所属的子视图，适配器模式下为null，按条目位置区分
+         */
+        View mChild;
+        long[] mMetSince;
+        boolean[] mFired;
+
+        void reset(int ruleCount) {
+            if (mMetSince == null || mMetSince.length < ruleCount) {
+                mMetSince = new long[ruleCount];
+                mFired = new boolean[ruleCount];
+            }
+            for (int i = 0; i < ruleCount; i++) {
+                mMetSince[i] = -1;
+                mFired[i] = false;
+            }
+        }
+
+        /**
+         * 在末尾追加一条规则的初始状态，已有规则的状态不变
+         */
+        void appendRule(int ruleCount) {
+            if (mMetSince.length < ruleCount) {
+                mMetSince = Arrays.copyOf(mMetSince, ruleCount);
+                mFired = Arrays.copyOf(mFired, ruleCount);
+            }
+            mMetSince[ruleCount - 1] = -1;
+            mFired[ruleCount - 1] = false;
+        }
+
+        /**
+         * 移除指定规则的状态，其后规则的状态前移
+         */
+        void removeRuleAt(int index, int ruleCount) {
+            System.arraycopy(mMetSince, index + 1, mMetSince, index, ruleCount - index - 1);
+            System.arraycopy(mFired, index + 1, mFired, index, ruleCount - index - 1);
+        }
+    }
+
+    private final ArrayList<Rule> mRules = new ArrayList<>();
+    /**
+     * 可见范围内子视图的计时状态，键为当前下标，离开可见范围后回收
+     */
+    private SparseArray<ChildState> mStates = new SparseArray<>();
+    private SparseArray<ChildState> mStatesScratch = new SparseArray<>();
+    private final ArrayList<ChildState> mStatePool = new ArrayList<>();
+
+    boolean isEmpty() {
+        return mRules.isEmpty();
+    }
+
+    /**
+     * 添加规则，已有规则下的计时及回调状态保持不变，不会重复回调
+     */
+    void addRule(float threshold, long dwellMillis, @NonNull ScrollLinearLayout.OnViewabilityListener listener) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Viewability threshold must be in (0, 1]: " + threshold);
+        }
+        mRules.add(new Rule(threshold, dwellMillis, listener));
+        final int ruleCount = mRules.size();
+        for (int i = mStates.size() - 1; i >= 0; i--) {
+            mStates.valueAt(i).appendRule(ruleCount);
+        }
+    }
+
+    /**
+     * 移除使用指定回调的规则，其余规则下的计时及回调状态保持不变
+     */
+    void removeRules(@NonNull ScrollLinearLayout.OnViewabilityListener listener) {
+        for (int r = mRules.size() - 1; r >= 0; r--) {
+            if (mRules.get(r).mListener != listener) {
+                continue;
+            }
+            final int ruleCount = mRules.size();
+            for (int i = mStates.size() - 1; i >= 0; i--) {
+                mStates.valueAt(i).removeRuleAt(r, ruleCount);
+            }
+            mRules.remove(r);
+        }
+        if (mRules.isEmpty()) {
+            clearStates();
+        }
+    }
+
+    void clear() {
+        mRules.clear();
+        clearStates();
+    }
+
+    /**
+     * 丢弃所有计时及回调状态，容器不可见时调用，重新可见后重新计时
+     */
+    void clearStates() {
+        for (int i = mStates.size() - 1; i >= 0; i--) {
+            recycleState(mStates.valueAt(i));
+        }
+        mStates.clear();
+    }
+
+    private void recycleState(ChildState state) {
+        state.mChild = null;
+        if (mStatePool.size() < MAX_POOLED_STATES) {
+            mStatePool.add(state);
+        }
+    }
+
+    private ChildState obtainState() {
+        final int size = mStatePool.size();
+        final ChildState state = size > 0 ? mStatePool.remove(size - 1) : new ChildState();
+        state.reset(mRules.size());
+        return state;
+    }
+
+    /**
+     * 更新可见范围内子视图的曝光状态，驻留时长满足要求的回调
+     *
+     * @param host  容器
+     * @param first 第一个可见的子视图下标，没有时为-1
+     * @param last  最后一个可见的子视图下标
+     * @param now   当前帧时间
+     * @return 距离最近一个驻留时长到期的毫秒数，没有等待中的子视图时返回-1
+     */
+    long update(@NonNull ScrollLinearLayout host, int first, int last, long now) {
+        // 普通模式下增删子视图会使下标偏移，按子视图实例将计时状态迁移到新的下标，离开可见范围的回收
+        final SparseArray<ChildState> states = mStatesScratch;
+        states.clear();
+        for (int index = first; index >= 0 && index <= last; index++) {
+            final View child = host.getViewabilityChild(index);
+            ChildState state = takeState(index, child);
+            if (state == null) {
+                state = obtainState();
+                state.mChild = child;
+            }
+            states.put(index, state);
+        }
+        clearStates();
+        mStatesScratch = mStates;
+        mStates = states;
+        if (first < 0) {
+            return -1;
+        }
+
+        long nextDelay = -1;
+        final int ruleCount = mRules.size();
+        for (int index = first; index <= last; index++) {
+            final float fraction = host.getExposedFraction(index);
+            final ChildState state = mStates.get(index);
+            for (int r = 0; r < ruleCount; r++) {
+                final Rule rule = mRules.get(r);
+                if (fraction <= 0 || fraction < rule.mThreshold) {
+                    state.mMetSince[r] = -1;
+                    state.mFired[r] = false;
+                    continue;
+                }
+                if (state.mFired[r]) {
+                    continue;
+                }
+                if (state.mMetSince[r] < 0) {
+                    state.mMetSince[r] = now;
+                }
+                final long remaining = state.mMetSince[r] + rule.mDwellMillis - now;
+                if (remaining <= 0) {
+                    state.mFired[r] = true;
+                    rule.mListener.onChildViewable(host, index, fraction);
+                } else if (nextDelay < 0 || remaining < nextDelay) {
+                    nextDelay = remaining;
+                }
+            }
+        }
+        return nextDelay;
+    }
+
+    /**
+     * 取出属于指定子视图的计时状态，先按下标查找，普通模式下下标不一致时再按子视图实例查找
+     */
+    private ChildState takeState(int index, View child) {
+        final int i = mStates.indexOfKey(index);
+        if (i >= 0 && mStates.valueAt(i).mChild == child) {
+            final ChildState state = mStates.valueAt(i);
+            mStates.removeAt(i);
+            return state;
+        }
+        if (child != null) {
+            for (int j = mStates.size() - 1; j >= 0; j--) {
+                if (mStates.valueAt(j).mChild == child) {
+                    final ChildState state = mStates.valueAt(j);
+                    mStates.removeAt(j);
+                    return state;
+                }
+            }
+        }
+        return null;
+    }
+
+}
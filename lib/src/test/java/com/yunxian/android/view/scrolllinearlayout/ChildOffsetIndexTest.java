@@ -0,0 +1,114 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link ChildOffsetIndex} 的单元测试，通过逐个记录位置构建索引，不依赖实际的子视图
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 22:25
+ */
+public class ChildOffsetIndexTest {
+
+    private ChildOffsetIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new ChildOffsetIndex();
+        // 内边距8，第二个子视图为 GONE，最后一个子视图之前有4的间隙
+        mIndex.begin(4);
+        mIndex.set(0, 8, 10);
+        mIndex.set(1, 18, 0);
+        mIndex.set(2, 18, 12);
+        mIndex.set(3, 34, 6);
+        mIndex.finish();
+    }
+
+    @Test
+    public void startsAndEndsMatchRecordedPositions() {
+        assertEquals(4, mIndex.getCount());
+        assertEquals(8, mIndex.getStart(0));
+        assertEquals(18, mIndex.getEnd(0));
+        assertEquals(18, mIndex.getStart(1));
+        assertEquals(18, mIndex.getEnd(1));
+        assertEquals(18, mIndex.getStart(2));
+        assertEquals(30, mIndex.getEnd(2));
+        assertEquals(34, mIndex.getStart(3));
+        assertEquals(40, mIndex.getEnd(3));
+        assertEquals(12, mIndex.getExtent(2));
+        assertEquals(8, mIndex.getContentStart());
+        assertEquals(40, mIndex.getContentEnd());
+    }
+
+    @Test
+    public void indexAtOffsetFindsLastChildStartingBefore() {
+        assertEquals(0, mIndex.indexAtOffset(8));
+        assertEquals(0, mIndex.indexAtOffset(17));
+        assertEquals(2, mIndex.indexAtOffset(18));
+        // 间隙内的位置属于间隙之前的子视图
+        assertEquals(2, mIndex.indexAtOffset(33));
+        assertEquals(3, mIndex.indexAtOffset(34));
+        assertEquals(3, mIndex.indexAtOffset(39));
+    }
+
+    @Test
+    public void indexAtOffsetClampsOutOfRangeOffsets() {
+        assertEquals(0, mIndex.indexAtOffset(0));
+        assertEquals(3, mIndex.indexAtOffset(40));
+        assertEquals(3, mIndex.indexAtOffset(1000));
+
+        mIndex.begin(0);
+        mIndex.finish();
+        assertEquals(-1, mIndex.indexAtOffset(0));
+        assertEquals(0, mIndex.getContentStart());
+        assertEquals(0, mIndex.getContentEnd());
+    }
+
+    @Test
+    public void resizeShiftsFollowingChildren() {
+        assertEquals(5, mIndex.resize(0, 15));
+
+        assertEquals(8, mIndex.getStart(0));
+        assertEquals(23, mIndex.getEnd(0));
+        assertEquals(23, mIndex.getStart(2));
+        assertEquals(39, mIndex.getStart(3));
+        assertEquals(45, mIndex.getContentEnd());
+        assertEquals(0, mIndex.indexAtOffset(22));
+        assertEquals(2, mIndex.indexAtOffset(23));
+
+        assertEquals(-2, mIndex.resize(2, 10));
+        assertEquals(37, mIndex.getStart(3));
+        assertEquals(43, mIndex.getContentEnd());
+        assertEquals(0, mIndex.resize(2, 10));
+    }
+
+    @Test
+    public void resizeLastChildExtendsContent() {
+        assertEquals(4, mIndex.resize(3, 10));
+
+        assertEquals(34, mIndex.getStart(3));
+        assertEquals(44, mIndex.getEnd(3));
+        assertEquals(44, mIndex.getContentEnd());
+    }
+
+    @Test
+    public void overlappingChildrenKeepNonNegativeAdvances() {
+        mIndex.begin(3);
+        mIndex.set(0, 0, 20);
+        mIndex.set(1, 10, 20);
+        mIndex.set(2, 5, 20);
+        mIndex.finish();
+
+        assertEquals(10, mIndex.getStart(1));
+        // 起始位置早于前一个子视图时按前一个子视图的起始位置处理
+        assertEquals(10, mIndex.getStart(2));
+        assertEquals(0, mIndex.indexAtOffset(9));
+        assertEquals(2, mIndex.indexAtOffset(10));
+        assertEquals(30, mIndex.getContentEnd());
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.yunxian.android.view.scrolllinearlayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ItemExtentTable} 的单元测试
+ *
+ * @author A Shuai
+ * @email ls1110924@gmail.com
+ * @date 2026/10/18 22:10
+ */
+public class ItemExtentTableTest {
+
+    private ItemExtentTable mTable;
+
+    @Before
+    public void setUp() {
+        mTable = new ItemExtentTable();
+    }
+
+    @Test
+    public void offsetIsSumOfPrecedingExtents() {
+        mTable.load(new int[]{10, 0, 25, 5, 7}, 5);
+
+        assertEquals(5, mTable.getCount());
+        assertEquals(0, mTable.getOffset(0));
+        assertEquals(10, mTable.getOffset(1));
+        assertEquals(10, mTable.getOffset(2));
+        assertEquals(35, mTable.getOffset(3));
+        assertEquals(40, mTable.getOffset(4));
+        assertEquals(47, mTable.getOffset(5));
+        assertEquals(47, mTable.getTotal());
+    }
+
+    @Test
+    public void resetUsesEstimateForAllItems() {
+        mTable.reset(100, 12);
+
+        assertEquals(100, mTable.getCount());
+        assertEquals(1200, mTable.getTotal());
+        for (int i = 0; i <= 100; i++) {
+            assertEquals(i * 12, mTable.getOffset(i));
+        }
+        assertFalse(mTable.isMeasured(0));
+    }
+
+    @Test
+    public void indexAtOffsetFindsCoveringItem() {
+        mTable.load(new int[]{10, 20, 30}, 3);
+
+        assertEquals(0, mTable.indexAtOffset(0));
+        assertEquals(0, mTable.indexAtOffset(9));
+        assertEquals(1, mTable.indexAtOffset(10));
+        assertEquals(1, mTable.indexAtOffset(29));
+        assertEquals(2, mTable.indexAtOffset(30));
+        assertEquals(2, mTable.indexAtOffset(59));
+    }
+
+    @Test
+    public void indexAtOffsetClampsOutOfRangeOffsets() {
+        mTable.load(new int[]{10, 20, 30}, 3);
+
+        assertEquals(0, mTable.indexAtOffset(-5));
+        assertEquals(2, mTable.indexAtOffset(60));
+        assertEquals(2, mTable.indexAtOffset(Integer.MAX_VALUE));
+
+        mTable.reset(0, 10);
+        assertEquals(-1, mTable.indexAtOffset(0));
+    }
+
+    @Test
+    public void indexAtOffsetSkipsEmptyItems() {
+        mTable.load(new int[]{10, 0, 0, 5}, 4);
+
+        // 长度为0的条目与其后条目起始位置相同，返回起始位置不大于偏移的最后一个条目
+        assertEquals(0, mTable.indexAtOffset(9));
+        assertEquals(3, mTable.indexAtOffset(10));
+    }
+
+    @Test
+    public void indexAtOffsetMatchesLinearScan() {
+        final int count = 37;
+        final int[] extents = new int[count];
+        for (int i = 0; i < count; i++) {
+            extents[i] = (i * 7) % 11 + 1;
+        }
+        mTable.load(extents, count);
+
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            for (int offset = start; offset < start + extents[i]; offset++) {
+                assertEquals(i, mTable.indexAtOffset(offset));
+            }
+            start += extents[i];
+        }
+    }
+
+    @Test
+    public void setExtentShiftsFollowingOffsets() {
+        mTable.reset(5, 10);
+
+        assertEquals(15, mTable.setExtent(1, 25));
+        assertTrue(mTable.isMeasured(1));
+        assertEquals(25, mTable.getExtent(1));
+        assertEquals(10, mTable.getOffset(1));
+        assertEquals(35, mTable.getOffset(2));
+        assertEquals(65, mTable.getOffset(5));
+        assertEquals(65, mTable.getTotal());
+        assertEquals(2, mTable.indexAtOffset(35));
+
+        assertEquals(-10, mTable.setExtent(3, 0));
+        assertEquals(45, mTable.getOffset(4));
+        assertEquals(55, mTable.getTotal());
+        assertEquals(4, mTable.indexAtOffset(45));
+        assertEquals(0, mTable.setExtent(3, 0));
+    }
+
+    @Test
+    public void reestimateKeepsMeasuredExtents() {
+        mTable.reset(4, 10);
+        mTable.setExtent(1, 30);
+        mTable.setExtent(2, 10);
+
+        mTable.reestimate(20);
+
+        assertEquals(20, mTable.getExtent(0));
+        assertEquals(30, mTable.getExtent(1));
+        assertEquals(10, mTable.getExtent(2));
+        assertEquals(20, mTable.getExtent(3));
+        assertEquals(20, mTable.getOffset(1));
+        assertEquals(50, mTable.getOffset(2));
+        assertEquals(60, mTable.getOffset(3));
+        assertEquals(80, mTable.getTotal());
+        assertEquals(3, mTable.indexAtOffset(60));
+    }
+
+    @Test
+    public void resetReusesLargerTable() {
+        mTable.load(new int[]{10, 20, 30, 40}, 4);
+
+        mTable.reset(2, 5);
+
+        assertEquals(2, mTable.getCount());
+        assertEquals(10, mTable.getTotal());
+        assertEquals(5, mTable.getOffset(1));
+        assertEquals(1, mTable.indexAtOffset(100));
+    }
+
+}